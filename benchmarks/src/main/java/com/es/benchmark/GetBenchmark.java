@@ -0,0 +1,58 @@
+package com.es.benchmark;
+
+import com.es.fixture.Fixtures;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 21:20
+ * @Description: 读取batchSize条数据: 逐条get vs 一次multi get
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    @Benchmark
+    public void singleGet(LocalNodeState state, Blackhole blackhole) {
+        for (int i = 0; i < batchSize; i++) {
+            GetResponse response = state.client.prepareGet(Fixtures.MYTEST, Fixtures.PRODUCT, randomId()).get();
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    public MultiGetResponse multiGet(LocalNodeState state) {
+        MultiGetRequestBuilder request = state.client.prepareMultiGet();
+        for (int i = 0; i < batchSize; i++) {
+            request.add(Fixtures.MYTEST, Fixtures.PRODUCT, randomId());
+        }
+        return request.get();
+    }
+
+    private static String randomId() {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(Fixtures.DOCS));
+    }
+}
@@ -0,0 +1,57 @@
+package com.es.benchmark;
+
+import com.es.codec.ProductCodec;
+import com.es.fixture.Fixtures;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 21:10
+ * @Description: 写入batchSize条数据: 逐条index vs 一次bulk
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexBenchmark {
+    private static final String INDEX = "bench_index";
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    private int sequence;
+
+    @Benchmark
+    public void singleIndex(LocalNodeState state) {
+        for (int i = 0; i < batchSize; i++) {
+            state.client.prepareIndex(INDEX, Fixtures.PRODUCT)
+                    .setSource(ProductCodec.encode(Fixtures.product(sequence++)), ProductCodec.CONTENT_TYPE)
+                    .get();
+        }
+    }
+
+    @Benchmark
+    public BulkResponse bulkIndex(LocalNodeState state) {
+        BulkRequestBuilder bulk = state.client.prepareBulk();
+        for (int i = 0; i < batchSize; i++) {
+            bulk.add(state.client.prepareIndex(INDEX, Fixtures.PRODUCT)
+                    .setSource(ProductCodec.encode(Fixtures.product(sequence++)), ProductCodec.CONTENT_TYPE));
+        }
+        return bulk.get();
+    }
+}
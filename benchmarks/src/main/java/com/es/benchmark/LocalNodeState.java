@@ -0,0 +1,30 @@
+package com.es.benchmark;
+
+import com.es.fixture.Fixtures;
+import com.es.fixture.TestCluster;
+import org.elasticsearch.client.transport.TransportClient;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 20:50
+ * @Description: 每个benchmark共享一个进程内节点, 通过TransportClient访问, 和线上的调用路径一致
+ * <p>
+ * 节点和数据由 {@link TestCluster} 提供: 第一次运行生成快照, 之后的fork直接恢复, 节点在fork结束时关闭。
+ */
+@State(Scope.Benchmark)
+public class LocalNodeState {
+    TransportClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        TestCluster cluster = TestCluster.get();
+        cluster.load(Fixtures.all());
+        client = cluster.client();
+    }
+}
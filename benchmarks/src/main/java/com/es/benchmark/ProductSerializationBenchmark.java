@@ -0,0 +1,58 @@
+package com.es.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.entry.Product;
+import com.es.codec.ProductCodec;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 21:00
+ * @Description: Product编解码: fastjson字符串 vs ProductCodec直接写XContent字节
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSerializationBenchmark {
+    private final Product product = new Product("storm", "张学友", "3.45");
+    private final String json = JSON.toJSONString(product);
+    private final BytesReference bytes = ProductCodec.encode(product);
+
+    /**
+     * setSource(String, XContentType) 最终也要把String转成UTF-8字节
+     */
+    @Benchmark
+    public byte[] encodeFastjson() {
+        return JSON.toJSONString(product).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public BytesReference encodeXContent() {
+        return ProductCodec.encode(product);
+    }
+
+    @Benchmark
+    public Product decodeFastjson() {
+        return JSON.parseObject(json, Product.class);
+    }
+
+    @Benchmark
+    public Product decodeXContent() {
+        return ProductCodec.decode(bytes);
+    }
+}
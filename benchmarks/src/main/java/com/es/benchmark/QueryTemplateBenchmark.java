@@ -0,0 +1,65 @@
+package com.es.benchmark;
+
+import com.es.query.QueryTemplate;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 21:30
+ * @Description: 每次构建QueryBuilder vs QueryTemplate拼接参数, 都包含写入transport请求的序列化
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryTemplateBenchmark {
+    private final QueryTemplate template = QueryTemplate.compile(query(QueryTemplate.param("name"), QueryTemplate.param("author")));
+    private final Map<String, Object> params = new HashMap<>();
+
+    public QueryTemplateBenchmark() {
+        params.put("name", "storm");
+        params.put("author", "张学友");
+    }
+
+    private static QueryBuilder query(String name, String author) {
+        return QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("name", name))
+                .filter(QueryBuilders.termQuery("author.keyword", author))
+                .filter(QueryBuilders.rangeQuery("version").gte("1.0"));
+    }
+
+    @Benchmark
+    public int builder() throws IOException {
+        return write(query("storm", "张学友"));
+    }
+
+    @Benchmark
+    public int template() throws IOException {
+        return write(template.bind(params));
+    }
+
+    private static int write(QueryBuilder query) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeNamedWriteable(query);
+            return out.size();
+        }
+    }
+}
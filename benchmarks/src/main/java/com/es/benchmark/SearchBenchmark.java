@@ -0,0 +1,78 @@
+package com.es.benchmark;
+
+import com.es.fixture.Fixtures;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 21:30
+ * @Description: MyTest / TestES3 中的各种查询
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Benchmark
+    public SearchResponse term(LocalNodeState state) {
+        return state.client.prepareSearch(Fixtures.BLOG).setTypes(Fixtures.ARTICLE)
+                .setQuery(QueryBuilders.termQuery("content", "全")).get();
+    }
+
+    @Benchmark
+    public SearchResponse match(LocalNodeState state) {
+        return state.client.prepareSearch(Fixtures.MYTEST)
+                .setQuery(QueryBuilders.matchQuery("name", "storm")).get();
+    }
+
+    @Benchmark
+    public SearchResponse wildcard(LocalNodeState state) {
+        return state.client.prepareSearch(Fixtures.BLOG).setTypes(Fixtures.ARTICLE)
+                .setQuery(QueryBuilders.wildcardQuery("content", "*全*")).get();
+    }
+
+    @Benchmark
+    public SearchResponse fuzzy(LocalNodeState state) {
+        return state.client.prepareSearch(Fixtures.BLOG).setTypes(Fixtures.ARTICLE)
+                .setQuery(QueryBuilders.fuzzyQuery("title", "lucene")).get();
+    }
+
+    @Benchmark
+    public SearchResponse highlight(LocalNodeState state) {
+        HighlightBuilder highlight = new HighlightBuilder()
+                .preTags("<font color='red' size='20'>")
+                .postTags("</font>")
+                .field("name");
+        return state.client.prepareSearch(Fixtures.MYTEST)
+                .setQuery(QueryBuilders.fuzzyQuery("name", "storm"))
+                .highlighter(highlight).get();
+    }
+
+    @Benchmark
+    public SearchResponse aggregation(LocalNodeState state) {
+        return state.client.prepareSearch(Fixtures.BANK).setTypes(Fixtures.ACCOUNT)
+                .setQuery(QueryBuilders.boolQuery().must(QueryBuilders.termQuery("gender.keyword", "F")))
+                .addAggregation(new MinAggregationBuilder("minAge").field("age"))
+                .addAggregation(new MinAggregationBuilder("minSalary").field("balance"))
+                .addAggregation(new AvgAggregationBuilder("avgSalary").field("balance"))
+                .get();
+    }
+}
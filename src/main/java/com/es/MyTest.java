@@ -1,5 +1,16 @@
 package com.es;
 
+import com.es.client.EsClientFactory;
+import com.es.fixture.Fixtures;
+import com.es.fixture.TestCluster;
+import com.es.get.GetBatcher;
+import com.es.query.InfixQueryRewriter;
+import com.es.query.NgramFields;
+import com.es.query.QueryTemplate;
+import com.es.reindex.DocumentTransform;
+import com.es.reindex.ReindexConfig;
+import com.es.reindex.Reindexer;
+import com.es.search.PagedHitIterator;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetResponse;
@@ -7,25 +18,22 @@ import org.elasticsearch.action.get.MultiGetItemResponse;
 import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.transport.TransportClient;
-import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
-import org.elasticsearch.transport.client.PreBuiltTransportClient;
 import org.junit.After;
 import org.junit.Before;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.Iterator;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -34,18 +42,19 @@ import java.util.Iterator;
  * @Description:
  */
 public class MyTest {
+    private static final NgramFields CONTENT_NGRAM = NgramFields.builder().field("content").build();
+    // 查询结构只序列化一次, 每次查询只替换参数
+    private static final QueryTemplate CONTENT_TERM = QueryTemplate.compile(QueryBuilders.termQuery("content", QueryTemplate.param("term")));
+    private static final QueryTemplate TITLE_FUZZY = QueryTemplate.compile(QueryBuilders.fuzzyQuery("title", QueryTemplate.param("term")));
     private TransportClient client;
 
     /**
      * @description 获取client
      **/
     @Before
-    public void getClient() throws UnknownHostException {
-        // 设置连接集群的名称
-        Settings settings = Settings.builder().put("cluster.name", "bigdata").build();
-        // 连接集群
-        client = new PreBuiltTransportClient(settings);
-        client.addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName("bigdata"), 9300));
+    public void getClient() {
+        // 获取共享的client, 同一个集群只会连接一次; -Des.local=true 时使用进程内集群, 数据从快照恢复
+        client = TestCluster.connect(Fixtures.blog());
         // 打印集群名称
         System.out.println(client.toString());
     }
@@ -105,6 +114,21 @@ public class MyTest {
         }
     }
 
+    @org.junit.Test //合并单条查询, 窗口内的多个get合并成一次multi get发送
+    public void getDataBatched() throws Exception {
+        try (GetBatcher batcher = new GetBatcher(client)) {
+            List<CompletableFuture<GetResponse>> futures = new ArrayList<>();
+            for (String id : new String[]{"1", "2", "3", "1"}) {
+                futures.add(batcher.get("blog", "article", id));
+            }
+            for (CompletableFuture<GetResponse> future : futures) {
+                GetResponse response = future.get();
+                // 不存在的文档同样会返回, isExists()为false
+                System.out.println(response.getId() + ":" + (response.isExists() ? response.getSourceAsString() : "不存在"));
+            }
+        }
+    }
+
     @org.junit.Test
     public void updateData() throws Throwable {
 
@@ -144,7 +168,6 @@ public class MyTest {
                 .doc(XContentFactory.jsonBuilder().startObject().field("user", "李四").endObject()).upsert(indexRequest);
 
         client.update(upsert).get();
-        client.close();
     }
 
     @org.junit.Test // 删除文档数据
@@ -159,123 +182,93 @@ public class MyTest {
         System.out.println("id:" + indexResponse.getId());
         System.out.println("version:" + indexResponse.getVersion());
         System.out.println("found:" + indexResponse.getResult());
-
-        // 3 关闭连接
-        client.close();
     }
 
     @org.junit.Test //查询所有
     public void matchAllQuery() {
 
-        // 1 执行查询
-        SearchResponse searchResponse = client.prepareSearch("blog").setTypes("article")
-                .setQuery(QueryBuilders.matchAllQuery()).get();
-
-        // 2 打印查询结果
-        SearchHits hits = searchResponse.getHits(); // 获取命中次数，查询结果有多少对象
-        System.out.println("查询结果有：" + hits.getTotalHits() + "条");
+        // 1 执行查询, 按页拉取全部结果, 内存中只保留当前页
+        try (PagedHitIterator iterator = PagedHitIterator.scroll(client, client.prepareSearch("blog").setTypes("article")
+                    .setQuery(QueryBuilders.matchAllQuery()))) {
 
-        Iterator<SearchHit> iterator = hits.iterator();
+            // 2 打印查询结果
+            while (iterator.hasNext()) {
+                SearchHit searchHit = iterator.next(); // 每个查询对象
 
-        while (iterator.hasNext()) {
-            SearchHit searchHit = iterator.next(); // 每个查询对象
-
-            System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+                System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+            }
+            System.out.println("查询结果有：" + iterator.getTotalHits() + "条");
         }
-
-        // 3 关闭连接
-        client.close();
     }
 
     @org.junit.Test  //分词查询
     public void query() {
-        // 1 条件查询
-        SearchResponse searchResponse = client.prepareSearch("blog").setTypes("article")
-                .setQuery(QueryBuilders.queryStringQuery("全文")).get();
-
-        // 2 打印查询结果
-        SearchHits hits = searchResponse.getHits(); // 获取命中次数，查询结果有多少对象
-        System.out.println("查询结果有：" + hits.getTotalHits() + "条");
+        // 1 条件查询, 按页拉取全部结果, 内存中只保留当前页
+        try (PagedHitIterator iterator = PagedHitIterator.scroll(client, client.prepareSearch("blog").setTypes("article")
+                    .setQuery(QueryBuilders.queryStringQuery("全文")))) {
 
-        Iterator<SearchHit> iterator = hits.iterator();
+            // 2 打印查询结果
+            while (iterator.hasNext()) {
+                SearchHit searchHit = iterator.next(); // 每个查询对象
 
-        while (iterator.hasNext()) {
-            SearchHit searchHit = iterator.next(); // 每个查询对象
-
-            System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+                System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+            }
+            System.out.println("查询结果有：" + iterator.getTotalHits() + "条");
         }
-
-        // 3 关闭连接
-        client.close();
     }
 
     @org.junit.Test //通配符查询
     public void wildcardQuery() {
 
-        // 1 通配符查询
-        SearchResponse searchResponse = client.prepareSearch("blog").setTypes("article")
-                .setQuery(QueryBuilders.wildcardQuery("content", "*全*")).get();
+        // 1 通配符查询, 按页拉取全部结果, 内存中只保留当前页
+        // 索引的content按createMapping的方式加了n-gram子字段时(如blog4), *全*会被改写成子字段上的term查询,
+        // 不再遍历整个词典; blog没有子字段, 保留原来的通配符查询
+        InfixQueryRewriter rewriter = new InfixQueryRewriter(client, CONTENT_NGRAM);
+        try (PagedHitIterator iterator = PagedHitIterator.scroll(client, client.prepareSearch("blog").setTypes("article")
+                    .setQuery(rewriter.rewrite(QueryBuilders.wildcardQuery("content", "*全*"), "blog")))) {
 
-        // 2 打印查询结果
-        SearchHits hits = searchResponse.getHits(); // 获取命中次数，查询结果有多少对象
-        System.out.println("查询结果有：" + hits.getTotalHits() + "条");
+            // 2 打印查询结果
+            while (iterator.hasNext()) {
+                SearchHit searchHit = iterator.next(); // 每个查询对象
 
-        Iterator<SearchHit> iterator = hits.iterator();
-
-        while (iterator.hasNext()) {
-            SearchHit searchHit = iterator.next(); // 每个查询对象
-
-            System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+                System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+            }
+            System.out.println("查询结果有：" + iterator.getTotalHits() + "条");
         }
-
-        // 3 关闭连接
-        client.close();
     }
 
     @org.junit.Test //词条查询（TermQuery）
     public void termQuery() {
 
-        // 1 第一field查询
-        SearchResponse searchResponse = client.prepareSearch("blog").setTypes("article")
-                .setQuery(QueryBuilders.termQuery("content", "全")).get();
+        // 1 第一field查询, 按页拉取全部结果, 内存中只保留当前页
+        try (PagedHitIterator iterator = PagedHitIterator.scroll(client, client.prepareSearch("blog").setTypes("article")
+                    .setQuery(CONTENT_TERM.bind("term", "全")))) {
 
-        // 2 打印查询结果
-        SearchHits hits = searchResponse.getHits(); // 获取命中次数，查询结果有多少对象
-        System.out.println("查询结果有：" + hits.getTotalHits() + "条");
+            // 2 打印查询结果
+            while (iterator.hasNext()) {
+                SearchHit searchHit = iterator.next(); // 每个查询对象
 
-        Iterator<SearchHit> iterator = hits.iterator();
-
-        while (iterator.hasNext()) {
-            SearchHit searchHit = iterator.next(); // 每个查询对象
-
-            System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+                System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+            }
+            System.out.println("查询结果有：" + iterator.getTotalHits() + "条");
         }
-
-        // 3 关闭连接
-        client.close();
     }
 
     @org.junit.Test // 模糊查询
     public void fuzzy() {
 
-        // 1 模糊查询
-        SearchResponse searchResponse = client.prepareSearch("blog").setTypes("article")
-                .setQuery(QueryBuilders.fuzzyQuery("title", "lucene")).get();
-
-        // 2 打印查询结果
-        SearchHits hits = searchResponse.getHits(); // 获取命中次数，查询结果有多少对象
-        System.out.println("查询结果有：" + hits.getTotalHits() + "条");
+        // 1 模糊查询, 按页拉取全部结果, 内存中只保留当前页
+        try (PagedHitIterator iterator = PagedHitIterator.scroll(client, client.prepareSearch("blog").setTypes("article")
+                    .setQuery(TITLE_FUZZY.bind("term", "lucene")))) {
 
-        Iterator<SearchHit> iterator = hits.iterator();
+            // 2 打印查询结果
+            while (iterator.hasNext()) {
+                SearchHit searchHit = iterator.next(); // 每个查询对象
 
-        while (iterator.hasNext()) {
-            SearchHit searchHit = iterator.next(); // 每个查询对象
-
-            System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+                System.out.println(searchHit.getSourceAsString()); // 获取字符串格式打印
+            }
+            System.out.println("查询结果有：" + iterator.getTotalHits() + "条");
         }
-
-        // 3 关闭连接
-        client.close();
     }
 
     @org.junit.Test  //映射操作
@@ -296,24 +289,46 @@ public class MyTest {
                 .endObject()
                 .startObject("content")
                 .field("type", "string")
-                .field("store", "yes")
+                .field("store", "yes");
+        // content加上n-gram子字段, 支持中缀查询
+        CONTENT_NGRAM.subfields(builder)
                 .endObject()
                 .endObject()
                 .endObject()
                 .endObject();
 
-        // 2 添加mapping
+        // 2 添加mapping, 子字段用到的分析器要先装到索引上
+        CONTENT_NGRAM.installAnalysis(client, "blog4");
         PutMappingRequest mapping = Requests.putMappingRequest("blog4").type("article").source(builder);
 
         client.admin().indices().putMapping(mapping).get();
+    }
 
-        // 3 关闭资源
-        client.close();
+    @org.junit.Test  //mapping变更后迁移数据
+    public void reindex() throws Exception {
+        // blog4已经按新的mapping创建好(见createMapping), 4个slice并行读取, 每秒最多写入5000条
+        ReindexConfig config = ReindexConfig.builder()
+                .slices(4)
+                .maxDocsPerSecond(5000)
+                .checkpoint(Paths.get("blog-blog4.checkpoint"))
+                .build();
+        Reindexer reindexer = new Reindexer(client, "blog", "blog4", config)
+                .transform(new DocumentTransform() {
+                    @Override
+                    public Map<String, Object> transform(String id, Map<String, Object> source) {
+                        // title2是新mapping中的字段名
+                        source.put("title2", source.remove("title"));
+                        return source;
+                    }
+                });
+        // 中断之后再次执行会从检查点继续
+        long written = reindexer.run();
+        System.out.println("迁移了" + written + "条, 失败" + reindexer.getFailed() + "条");
     }
 
     @After
     public void close() {
-        client.close();
+        // client由EsClientFactory统一管理, 这里不再关闭
         System.out.println("ok");
     }
 
@@ -1,33 +1,46 @@
 package com.es;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
 import com.entry.Product;
+import com.es.bulk.BulkLoadSession;
+import com.es.bulk.NdjsonLoader;
+import com.es.bulk.ProductIngester;
+import com.es.bulk.UpdateCoalescer;
+import com.es.cache.DocumentNearCache;
+import com.es.client.AsyncEsClient;
+import com.es.codec.ProductCodec;
+import com.es.fixture.Fixtures;
+import com.es.fixture.TestCluster;
+import com.es.limit.AdaptiveLimiter;
+import com.es.limit.LimitedClient;
+import com.es.spool.ProductSpool;
+import com.es.spool.SpoolConfig;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.transport.TransportClient;
-import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
-import org.elasticsearch.transport.client.PreBuiltTransportClient;
-import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * @Author: lsp
@@ -43,12 +56,9 @@ public class TestES1_2 {
      * @description 执行初始化
      **/
     @Before
-    public void init() throws UnknownHostException {
-        // 设置连接集群的名称
-        Settings settings = Settings.builder().put("cluster.name", "bigdata").build();
-        // 连接集群
-        client = new PreBuiltTransportClient(settings);
-        client.addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName("bigdata"), 9300));
+    public void init() {
+        // 获取共享的client, 同一个集群只会连接一次; -Des.local=true 时使用进程内集群, 数据从快照恢复
+        client = TestCluster.connect(Fixtures.mytest());
         // 打印集群名称
         System.out.println(client.toString());
     }
@@ -62,9 +72,10 @@ public class TestES1_2 {
      **/
     @Test  // 测试新增索引
     public void testInsert() {
-        String source = JSON.toJSONString(new Product("storm", "张学友", "3.45"));
-        System.out.println(source);
-        IndexResponse response = client.prepareIndex(INDEX, TYPE, "1").setSource(source, XContentType.JSON).get();
+        // 直接编码成json字节, 不再经过中间的String
+        BytesReference source = ProductCodec.encode(new Product("storm", "张学友", "3.45"));
+        System.out.println(source.utf8ToString());
+        IndexResponse response = client.prepareIndex(INDEX, TYPE, "1").setSource(source, ProductCodec.CONTENT_TYPE).get();
         System.out.println(response);
     }
     @Test
@@ -77,10 +88,9 @@ public class TestES1_2 {
     @Test
     public void testInsertObj() {
         Product product = new Product("kafka", "LinkIn", "0.10.0.1");
-        JSONObject jsonObj = new JSONObject((Map<String, Object>) product);
-        System.out.println(jsonObj.toString());
+        // Product不是Map, 不能强转, 用ProductCodec直接编码
         IndexResponse response = client.prepareIndex("product", "bigdata", "6")
-                .setSource(jsonObj.toString())
+                .setSource(ProductCodec.encode(product), ProductCodec.CONTENT_TYPE)
                 .get();
 //        IndexResponse response = client.prepareIndex("product", "bigdata", "5")
 //                .setSource("name", "es", "author", "oldli")
@@ -125,20 +135,46 @@ public class TestES1_2 {
     @Test  //测试更新  将索引标识为3的索引信息author更新为jack version更新为666  局部更新
     public void testUpdate() {
         //UpdateResponse response = client.prepareUpdate(INDEX, TYPE, "3").setDoc(JSON.toJSONString(new Product("jack", "666")), XContentType.JSON).get();
-        UpdateResponse response = client.prepareUpdate(INDEX, TYPE, "3").setDoc(JSON.toJSONString(new Product("Apache Hive")), XContentType.JSON).get();
+        UpdateResponse response = client.prepareUpdate(INDEX, TYPE, "3")
+                .setDoc(new IndexRequest().source(ProductCodec.encode(new Product("Apache Hive")), ProductCodec.CONTENT_TYPE)).get();
         System.out.println("反馈的结果是：" + response);
     }
 
     @Test  //测试查询  需求：查询索引标识值为2的索引信息
     public void testGet() {
         GetResponse response = client.prepareGet(INDEX, TYPE, "3").get();
-        System.out.println("检索到的索引信息是：" + response.getSourceAsString());
+        System.out.println("检索到的索引信息是：" + ProductCodec.decode(response));
+    }
+
+    @Test  //近端缓存演示, 热点文档第二次读取不再访问集群, 通过缓存写入后旧版本自动失效
+    public void testNearCache() {
+        DocumentNearCache cache = new DocumentNearCache(client);
+        System.out.println("第一次：" + ProductCodec.decode(cache.get(INDEX, TYPE, "3")));
+        System.out.println("第二次：" + ProductCodec.decode(cache.get(INDEX, TYPE, "3")));
+        cache.update(new UpdateRequest(INDEX, TYPE, "3").doc("name", "Apache Hive"));
+        System.out.println("更新后：" + ProductCodec.decode(cache.get(INDEX, TYPE, "3")));
+        System.out.printf("命中：%d, 未命中：%d%n", cache.getHits(), cache.getMisses());
+    }
+
+    @Test  //异步操作演示, 写入完成后再读取, 整个过程不阻塞调用线程, 最后的get()只是为了等待演示结束
+    public void testAsync() throws Exception {
+        final AsyncEsClient async = new AsyncEsClient(client);
+        CompletableFuture<GetResponse> future = async
+                .index(new IndexRequest(INDEX, TYPE, "9").source(ProductCodec.encode(new Product("flink", "Apache", "1.7.0")), ProductCodec.CONTENT_TYPE))
+                .thenCompose(new Function<IndexResponse, CompletableFuture<GetResponse>>() {
+                    @Override
+                    public CompletableFuture<GetResponse> apply(IndexResponse response) {
+                        System.out.println("写入版本：" + response.getVersion());
+                        return async.get(new GetRequest(INDEX, TYPE, "9"), TimeValue.timeValueSeconds(1));
+                    }
+                });
+        System.out.println("检索到的索引信息是：" + ProductCodec.decode(future.get()));
     }
 
     @Test  //elasticSearch批处理操作演示
     public void testBulk() {
         BulkResponse bulkResponse = client.prepareBulk()
-                .add(new IndexRequest(INDEX, TYPE).source(JSON.toJSONString(new Product("kafka", "陆小凤", "3.6.8")), XContentType.JSON))
+                .add(new IndexRequest(INDEX, TYPE).source(ProductCodec.encode(new Product("kafka", "陆小凤", "3.6.8")), ProductCodec.CONTENT_TYPE))
                 .add(new UpdateRequest(INDEX, TYPE, "3").doc("name", "Flume"))
                 .add(new DeleteRequest(INDEX, TYPE, "1"))
                 .get();
@@ -150,10 +186,107 @@ public class TestES1_2 {
         }
     }
 
-    @After  //运行结束释放资源
-    public void cleanUp() {
-        if (client != null) {
-            client.close();
+    @Test  //持续写入演示, 按条数/字节数/时间间隔自动攒批提交
+    public void testBulkProcessor() {
+        ProductIngester ingester = new ProductIngester(client, INDEX, TYPE);
+        try {
+            for (int i = 0; i < 10000; i++) {
+                ingester.index(String.valueOf(i), new Product("kafka-" + i, "陆小凤", "3.6." + i));
+            }
+        } finally {
+            // close时会把缓冲区剩余的数据刷出去
+            ingester.close();
+        }
+        System.out.printf("提交：%d, 成功：%d, 失败：%d%n", ingester.getSubmitted(), ingester.getSucceeded(), ingester.getFailed());
+    }
+
+    @Test  //合并更新演示, 同一个商品在窗口内的多次价格/库存变化只写一次
+    public void testUpdateCoalescer() {
+        UpdateCoalescer coalescer = new UpdateCoalescer(client);
+        CompletableFuture<UpdateResponse> last = null;
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Map<String, Object> change = new HashMap<>();
+                change.put(i % 2 == 0 ? "price" : "stock", i);
+                last = coalescer.upsert(INDEX, TYPE, String.valueOf(i % 10), change);
+            }
+        } finally {
+            coalescer.close();
+        }
+        System.out.printf("提交：%d, 实际发送：%d, 最后一次版本号：%d%n",
+                coalescer.getReceived(), coalescer.getSent(), last.join().getVersion());
+    }
+
+    @Test  //自适应限流演示, bulk的并发数随集群的拒绝和延迟自动调整, 超出部分排队
+    public void testLimitedClient() {
+        LimitedClient limited = new LimitedClient(client);
+        ProductIngester ingester = new ProductIngester(limited, INDEX, TYPE);
+        try {
+            for (int i = 0; i < 100000; i++) {
+                ingester.index(String.valueOf(i), new Product("kafka-" + i, "陆小凤", "3.6." + i));
+            }
+        } finally {
+            ingester.close();
+        }
+        for (AdaptiveLimiter limiter : limited.limiters()) {
+            System.out.println(limiter);
+        }
+    }
+
+    @Test  //本地落盘写入演示, 写入先追加到磁盘, 后台线程再按bulk写进es, 集群不可用时数据留在磁盘上
+    public void testSpool() throws Exception {
+        SpoolConfig config = SpoolConfig.builder()
+                .directory(Paths.get(System.getProperty("java.io.tmpdir"), "product-spool"))
+                .build();
+        try (ProductSpool spool = new ProductSpool(client, config)) {
+            for (int i = 0; i < 10000; i++) {
+                spool.index(INDEX, TYPE, String.valueOf(i), new Product("kafka-" + i, "陆小凤", "3.6." + i));
+            }
+            System.out.println("全部写入es：" + spool.awaitDrained(TimeValue.timeValueMinutes(1)));
+            System.out.printf("写入：%d, 确认：%d, 失败：%d, 重试：%d%n",
+                    spool.getAppended(), spool.getAcknowledged(), spool.getFailed(), spool.getRetries());
+        }
+    }
+
+    @Test  //大批量导入演示, 导入期间关闭refresh和副本, 结束后恢复配置并合并segment
+    public void testBulkLoad() {
+        ProductIngester ingester = new ProductIngester(client, INDEX, TYPE);
+        try (BulkLoadSession session = BulkLoadSession.begin(client, INDEX).forceMerge(1)) {
+            try {
+                for (int i = 0; i < 100000; i++) {
+                    ingester.index(String.valueOf(i), new Product("kafka-" + i, "陆小凤", "3.6." + i));
+                }
+            } finally {
+                // 先把缓冲区的数据刷完, 再恢复索引配置
+                ingester.close();
+            }
+            session.complete();
+        }
+        System.out.printf("提交：%d, 成功：%d, 失败：%d%n", ingester.getSubmitted(), ingester.getSucceeded(), ingester.getFailed());
+    }
+
+    @Test  //文件导入演示, 按行切分NDJSON文件并行写入, 每行的json原样作为文档, 不解析成对象
+    public void testNdjsonLoad() throws IOException {
+        Path file = Files.createTempFile("products", ".ndjson");
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (int i = 0; i < 100000; i++) {
+                    ProductCodec.encode(new Product("kafka-" + i, "陆小凤", "3.6." + i)).writeTo(out);
+                    out.write('\n');
+                }
+                // 格式错误的行会被跳过并记录偏移
+                out.write("not json\n".getBytes("UTF-8"));
+            }
+            try (BulkLoadSession session = BulkLoadSession.begin(client, INDEX)) {
+                NdjsonLoader.Result result = new NdjsonLoader(client, INDEX, TYPE).workers(4).load(file);
+                session.complete();
+                System.out.println(result);
+                for (NdjsonLoader.Rejection rejection : result.getRejections()) {
+                    System.out.println(rejection);
+                }
+            }
+        } finally {
+            Files.delete(file);
         }
     }
 }
@@ -1,11 +1,27 @@
 package com.es;
 
-import com.alibaba.fastjson.JSON;
+import com.entry.Product;
+import com.es.aggregation.AggregationPlanner;
+import com.es.aggregation.MetricsQuery;
+import com.es.aggregation.MetricsResult;
+import com.es.codec.HitMapper;
+import com.es.fixture.Fixtures;
+import com.es.fixture.TestCluster;
+import com.es.hedge.HedgeConfig;
+import com.es.hedge.HedgedClient;
+import com.es.metrics.ClientMetrics;
+import com.es.metrics.InstrumentedClient;
+import com.es.query.QueryTemplate;
+import com.es.search.CursorPager;
+import com.es.search.HighlightRenderer;
+import com.es.search.HitSinks;
+import com.es.search.SlicedScrollExporter;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
-import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -15,15 +31,14 @@ import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
-import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
-import org.elasticsearch.transport.client.PreBuiltTransportClient;
-import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.Map;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 /**
  * Description：elasticSearch高级查询演示<br/>
@@ -33,18 +48,17 @@ public class TestES3 {
     private final static String TYPE = "product";
     //存储索引库的容器
     private final static String[] indices = {INDEX};
+    //按name检索的查询模板, 只在这里序列化一次
+    private final static QueryTemplate NAME_MATCH = QueryTemplate.compile(QueryBuilders.matchQuery("name", QueryTemplate.param("name")));
     private TransportClient client;
 
     /**
      * 执行初始化
      */
     @Before
-    public void init() throws UnknownHostException {
-        // 设置连接集群的名称
-        Settings settings = Settings.builder().put("cluster.name", "bigdata").build();
-        // 连接集群
-        client = new PreBuiltTransportClient(settings);
-        client.addTransportAddress(new InetSocketTransportAddress(InetAddress.getByName("bigdata"), 9300));
+    public void init() {
+        // 获取共享的client, 同一个集群只会连接一次; -Des.local=true 时使用进程内集群, 数据从快照恢复
+        client = TestCluster.connect(Fixtures.mytest(), Fixtures.bank());
         // 打印集群名称
         System.out.println(client.toString());
     }
@@ -69,7 +83,7 @@ public class TestES3 {
                 .setFrom(0)
                 .setSize(2)
                 //设置查询条件
-                .setQuery(QueryBuilders.matchQuery("name", "storm"))
+                .setQuery(NAME_MATCH.bind("name", "storm"))
                 //设置检索类型
                 .setSearchType(SearchType.DFS_QUERY_THEN_FETCH)
                 //.setSearchType(SearchType.QUERY_AND_FETCH)
@@ -84,6 +98,45 @@ public class TestES3 {
 
     }
 
+    /**
+     * 类型化结果演示
+     * <p>
+     * HitMapper按Product的字段只取name、author、version, 命中结果直接从_source字节映射成Product,
+     * 不再经过getSourceAsString或者Map。
+     */
+    @Test
+    public void testTypedHits() {
+        HitMapper<Product> mapper = HitMapper.of(Product.class);
+        SearchResponse response = mapper.prepare(client.prepareSearch(indices))
+                .setQuery(NAME_MATCH.bind("name", "storm"))
+                .get();
+        for (Product product : mapper.map(response.getHits())) {
+            System.out.println(product);
+        }
+    }
+
+    /**
+     * 游标分页演示
+     * <p>
+     * from/size翻得越深越慢, 用CursorPager按search_after翻页, 每页把nextCursor带回去即可。
+     * 这里沿用query then fetch, 需要更精确的打分时把最后一个参数换成true走DFS。
+     */
+    @Test
+    public void testCursorPaging() {
+        CursorPager pager = new CursorPager(client);
+        String cursor = null;
+        int pageNo = 0;
+        do {
+            CursorPager.Page page = pager.page(client.prepareSearch(indices)
+                    .setQuery(NAME_MATCH.bind("name", "storm")), 2, cursor);
+            System.out.println("第" + (++pageNo) + "页, 共" + page.getTotalHits() + "条");
+            for (SearchHit hit : page.getHits()) {
+                System.out.println(hit.getSourceAsString());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+    }
+
     /**
      * 案例2： 检索bigdata索引库中，product type中的字段name中包含hive的索引信息，需要高亮显示。
      * <p>
@@ -91,38 +144,26 @@ public class TestES3 {
      * {"name":"Apache <font color='red' size='20'>Hive</font>","author":"刘德华","version":"2.5.1"}
      */
     @Test
-    public void testHightLightShow() {
+    public void testHightLightShow() throws IOException {
         //准备高亮显示构建器HighlightBuilder的实例,
         HighlightBuilder builder = new HighlightBuilder();
         builder.preTags("<font color='red' size='20'>")
                 .postTags("</font>")
                 .field("name");
 
-        SearchResponse response = client.prepareSearch(indices)
+        //设置高亮显示, 并且只返回页面需要的字段
+        SearchRequestBuilder request = HighlightRenderer.prepare(client.prepareSearch(indices), builder, "name", "author", "version");
+        SearchResponse response = request
                 //设置查询条件
                 .setQuery(QueryBuilders.fuzzyQuery("name", "storm"))
-                //设置高亮显示
-                .highlighter(builder)
                 //触发执行
                 .get();
 
         //分析反馈的结果
         SearchHits hits = response.getHits();
         for (SearchHit hit : hits) {
-            //map封装了检索到的一条记录
-            Map<String, Object> map = hit.getSourceAsMap();
-
-            //分析索引信息,将检索关键字对应的key的值进行替换
-            //下述的Map容器封装了需要高亮显示的字段，key对应的值就包含了前后缀
-            Map<String, HighlightField> highlightFields = hit.getHighlightFields();
-            for (Map.Entry<String, HighlightField> entry : highlightFields.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue().getFragments()[0].toString();
-                map.put(key, value);
-            }
-
-            //打印输出当前的索引信息
-            System.out.println(JSON.toJSONString(map));
+            //直接在_source字节上把高亮片段替换进去, 不再转换成Map再序列化
+            System.out.println(HighlightRenderer.renderToString(hit));
         }
     }
 
@@ -155,12 +196,81 @@ public class TestES3 {
         System.out.printf(" 最小的女性员工的年龄：%s，最低薪资：%s,平均薪资：%.2f%n", minAge.getValue(), minSalay.getValue(), avgSalary.getValue());
     }
 
+    /**
+     * 聚合查询演示(优化版)
+     * <p>
+     * 需求同上, 使用AggregationPlanner: 不取命中文档, balance上的min和avg合并成一个stats聚合,
+     * gender的精确匹配放到filter中, 相同的查询在ttl内直接返回缓存结果。
+     */
+    @Test
+    public void testAggregationPlanner() {
+        AggregationPlanner planner = new AggregationPlanner(client);
+        MetricsQuery query = new MetricsQuery("bank").types("account")
+                .query(QueryBuilders.boolQuery().must(QueryBuilders.termQuery("gender.keyword", "F")))
+                .count("cnt")
+                .min("minAge", "age")
+                .min("minSalay", "balance")
+                .avg("avgSalary", "balance");
+        MetricsResult result = planner.execute(query);
+        System.out.printf("总人数：%.0f, 最小的女性员工的年龄：%s，最低薪资：%s,平均薪资：%.2f%n",
+                result.get("cnt"), result.get("minAge"), result.get("minSalay"), result.get("avgSalary"));
+        //第二次直接命中缓存
+        planner.execute(query);
+        System.out.println("缓存命中次数：" + planner.getCacheHits());
+    }
 
-    @After
-    public void cleanUp() {
-        //System.out.println("资源释放哦。。。");
-        if (client != null) {
-            client.close();
+    /**
+     * 调用指标演示
+     * <p>
+     * 用InstrumentedClient包装client之后, 每次调用的耗时按(操作, 索引)统计分位数,
+     * 每个周期打印一次日志, 也可以在jconsole的com.es节点下查看。
+     */
+    @Test
+    public void testMetrics() {
+        ClientMetrics metrics = new ClientMetrics(TimeValue.timeValueSeconds(1), true);
+        try {
+            Client instrumented = new InstrumentedClient(client, metrics);
+            for (int i = 0; i < 100; i++) {
+                instrumented.prepareSearch(indices).setQuery(NAME_MATCH.bind("name", "storm")).get();
+                instrumented.prepareGet(INDEX, TYPE, String.valueOf(i)).get();
+            }
+            metrics.report();
+        } finally {
+            metrics.close();
+        }
+    }
+
+    /**
+     * 对冲请求演示
+     * <p>
+     * 某个节点卡顿(GC、merge)时, 落在它上面的请求会拖慢整体的p99。HedgedClient在请求超过最近p95延迟还没返回时,
+     * 换一个副本再发一次, 用先返回的结果, 对冲请求最多占10%。
+     */
+    @Test
+    public void testHedgedSearch() {
+        // 关闭HedgedClient只停止它的定时线程, client继续可用
+        try (HedgedClient hedged = new HedgedClient(client, HedgeConfig.builder().percentile(95).maxHedgeRatio(0.1).build())) {
+            for (int i = 0; i < 100; i++) {
+                hedged.prepareSearch(indices).setQuery(NAME_MATCH.bind("name", "storm")).get();
+                hedged.prepareGet(INDEX, TYPE, String.valueOf(i)).get();
+            }
+            System.out.println("请求" + hedged.getRequests() + "次, 对冲" + hedged.getHedged() + "次, 对冲先返回"
+                    + hedged.getHedgeWins() + "次, 当前search对冲延迟" + hedged.getSearchDelayMillis() + "ms");
+        }
+    }
+
+    /**
+     * 并行导出演示
+     * <p>
+     * 需求：把mytest索引库中的全部数据导出成json文件, 每行一条, 按CPU核数拆分成多个slice并行拉取。
+     */
+    @Test
+    public void testSlicedExport() throws IOException {
+        SlicedScrollExporter exporter = new SlicedScrollExporter(client, indices)
+                .query(QueryBuilders.matchAllQuery());
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(INDEX + ".json"))) {
+            long total = exporter.export(HitSinks.ndjson(out));
+            System.out.printf("导出总条数：%d, 各slice条数：%s%n", total, Arrays.toString(exporter.getProgress()));
         }
     }
 }
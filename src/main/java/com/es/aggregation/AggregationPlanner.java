@@ -0,0 +1,242 @@
+package com.es.aggregation;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 10:30
+ * @Description: 指标聚合的查询计划和结果缓存
+ * <p>
+ * 把 {@link MetricsQuery} 翻译成最省的查询:
+ * 1. size固定为0, 不取命中的文档;
+ * 2. 同一个字段上有多个 min/max/avg/sum/count 时合并成一个stats聚合, 只遍历一次字段值;
+ * 3. term/terms/range/exists/ids/prefix 这类精确匹配条件放到filter中, 不计算评分, 还能用上节点的query cache;
+ * 4. count(*) 直接取totalHits。
+ * 结果按查询内容在客户端缓存ttl时间, 适合看板这种重复发相同查询的场景。
+ */
+public class AggregationPlanner {
+    public static final TimeValue DEFAULT_TTL = TimeValue.timeValueSeconds(30);
+    private static final long DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Client client;
+    private final Cache<String, MetricsResult> cache;
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public AggregationPlanner(Client client) {
+        this(client, DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param ttl        结果缓存时间, 为0时不缓存
+     * @param maxEntries 最多缓存的结果数
+     */
+    public AggregationPlanner(Client client, TimeValue ttl, long maxEntries) {
+        this.client = client;
+        this.cache = ttl.millis() > 0
+                ? CacheBuilder.<String, MetricsResult>builder().setExpireAfterWrite(ttl).setMaximumWeight(maxEntries).build()
+                : null;
+    }
+
+    /**
+     * @description 执行指标查询, ttl内相同的查询直接返回缓存结果
+     **/
+    public MetricsResult execute(MetricsQuery query) {
+        SearchSourceBuilder source = plan(query);
+        String key = null;
+        if (cache != null) {
+            key = Arrays.toString(query.getIndices()) + Arrays.toString(query.getTypes()) + source;
+            MetricsResult cached = cache.get(key);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+        }
+        SearchResponse response = client.prepareSearch(query.getIndices()).setTypes(query.getTypes())
+                .setSource(source).get();
+        MetricsResult result = extract(query, response);
+        if (cache != null) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @description 生成实际发送的查询
+     **/
+    static SearchSourceBuilder plan(MetricsQuery query) {
+        SearchSourceBuilder source = new SearchSourceBuilder().size(0);
+        if (query.getQuery() != null) {
+            source.query(toFilterContext(query.getQuery()));
+        }
+        for (Map.Entry<String, Set<Metric>> entry : metricsByField(query).entrySet()) {
+            String field = entry.getKey();
+            Set<Metric> metrics = entry.getValue();
+            if (metrics.size() > 1) {
+                source.aggregation(AggregationBuilders.stats(statsName(field)).field(field));
+                continue;
+            }
+            Metric metric = metrics.iterator().next();
+            String name = singleName(metric, field);
+            switch (metric) {
+                case MIN:
+                    source.aggregation(AggregationBuilders.min(name).field(field));
+                    break;
+                case MAX:
+                    source.aggregation(AggregationBuilders.max(name).field(field));
+                    break;
+                case AVG:
+                    source.aggregation(AggregationBuilders.avg(name).field(field));
+                    break;
+                case SUM:
+                    source.aggregation(AggregationBuilders.sum(name).field(field));
+                    break;
+                case COUNT:
+                    source.aggregation(AggregationBuilders.count(name).field(field));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unsupported metric " + metric);
+            }
+        }
+        return source;
+    }
+
+    /**
+     * @description 把精确匹配的条件移到filter中
+     **/
+    static QueryBuilder toFilterContext(QueryBuilder query) {
+        if (isExactMatch(query)) {
+            return QueryBuilders.boolQuery().filter(query);
+        }
+        if (!(query instanceof BoolQueryBuilder)) {
+            return query;
+        }
+        BoolQueryBuilder original = (BoolQueryBuilder) query;
+        BoolQueryBuilder rewritten = QueryBuilders.boolQuery();
+        for (QueryBuilder must : original.must()) {
+            if (isExactMatch(must)) {
+                rewritten.filter(must);
+            } else {
+                rewritten.must(must);
+            }
+        }
+        for (QueryBuilder filter : original.filter()) {
+            rewritten.filter(filter);
+        }
+        for (QueryBuilder mustNot : original.mustNot()) {
+            rewritten.mustNot(mustNot);
+        }
+        for (QueryBuilder should : original.should()) {
+            rewritten.should(should);
+        }
+        return rewritten.minimumShouldMatch(original.minimumShouldMatch())
+                .adjustPureNegative(original.adjustPureNegative())
+                .boost(original.boost())
+                .queryName(original.queryName());
+    }
+
+    private static boolean isExactMatch(QueryBuilder query) {
+        return query instanceof TermQueryBuilder
+                || query instanceof TermsQueryBuilder
+                || query instanceof RangeQueryBuilder
+                || query instanceof ExistsQueryBuilder
+                || query instanceof IdsQueryBuilder
+                || query instanceof PrefixQueryBuilder;
+    }
+
+    private static MetricsResult extract(MetricsQuery query, SearchResponse response) {
+        Map<String, Set<Metric>> byField = metricsByField(query);
+        Aggregations aggregations = response.getAggregations();
+        long totalHits = response.getHits().getTotalHits();
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (MetricsQuery.Spec spec : query.getMetrics()) {
+            if (spec.getField() == null) {
+                values.put(spec.getName(), (double) totalHits);
+            } else if (byField.get(spec.getField()).size() > 1) {
+                Stats stats = aggregations.get(statsName(spec.getField()));
+                values.put(spec.getName(), statsValue(stats, spec.getMetric()));
+            } else {
+                NumericMetricsAggregation.SingleValue single =
+                        aggregations.get(singleName(spec.getMetric(), spec.getField()));
+                values.put(spec.getName(), single.value());
+            }
+        }
+        return new MetricsResult(values, totalHits);
+    }
+
+    private static double statsValue(Stats stats, Metric metric) {
+        switch (metric) {
+            case MIN:
+                return stats.getMin();
+            case MAX:
+                return stats.getMax();
+            case AVG:
+                return stats.getAvg();
+            case SUM:
+                return stats.getSum();
+            case COUNT:
+                return stats.getCount();
+            default:
+                throw new IllegalArgumentException("unsupported metric " + metric);
+        }
+    }
+
+    private static Map<String, Set<Metric>> metricsByField(MetricsQuery query) {
+        Map<String, Set<Metric>> byField = new LinkedHashMap<>();
+        for (MetricsQuery.Spec spec : query.getMetrics()) {
+            if (spec.getField() == null) {
+                continue;
+            }
+            Set<Metric> metrics = byField.get(spec.getField());
+            if (metrics == null) {
+                metrics = EnumSet.noneOf(Metric.class);
+                byField.put(spec.getField(), metrics);
+            }
+            metrics.add(spec.getMetric());
+        }
+        return byField;
+    }
+
+    private static String statsName(String field) {
+        return "stats_" + field;
+    }
+
+    private static String singleName(Metric metric, String field) {
+        return metric.name().toLowerCase(Locale.ROOT) + "_" + field;
+    }
+}
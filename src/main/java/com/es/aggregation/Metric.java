@@ -0,0 +1,17 @@
+package com.es.aggregation;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 10:10
+ * @Description: 支持的指标类型, 同一个字段上的多个指标可以合并成一个stats聚合
+ */
+public enum Metric {
+    MIN,
+    MAX,
+    AVG,
+    SUM,
+    /**
+     * 字段有值的文档数; 不指定字段时为命中的文档总数
+     */
+    COUNT
+}
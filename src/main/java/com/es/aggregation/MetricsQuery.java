@@ -0,0 +1,105 @@
+package com.es.aggregation;
+
+import lombok.Value;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 10:15
+ * @Description: 一组指标查询, 相当于 select count(*), min(x), avg(y) ... from index where query
+ * <pre>
+ * MetricsQuery query = new MetricsQuery("bank").types("account")
+ *         .query(QueryBuilders.termQuery("gender.keyword", "F"))
+ *         .count("cnt")
+ *         .min("minAge", "age")
+ *         .min("minSalary", "balance")
+ *         .avg("avgSalary", "balance");
+ * </pre>
+ */
+public class MetricsQuery {
+    private final String[] indices;
+    private String[] types = new String[0];
+    private QueryBuilder query;
+    private final List<Spec> metrics = new ArrayList<>();
+
+    public MetricsQuery(String... indices) {
+        this.indices = indices;
+    }
+
+    public MetricsQuery types(String... types) {
+        this.types = types;
+        return this;
+    }
+
+    public MetricsQuery query(QueryBuilder query) {
+        this.query = query;
+        return this;
+    }
+
+    public MetricsQuery min(String name, String field) {
+        return add(name, Metric.MIN, field);
+    }
+
+    public MetricsQuery max(String name, String field) {
+        return add(name, Metric.MAX, field);
+    }
+
+    public MetricsQuery avg(String name, String field) {
+        return add(name, Metric.AVG, field);
+    }
+
+    public MetricsQuery sum(String name, String field) {
+        return add(name, Metric.SUM, field);
+    }
+
+    public MetricsQuery count(String name, String field) {
+        return add(name, Metric.COUNT, field);
+    }
+
+    /**
+     * @description 命中的文档总数, 直接取 totalHits, 不需要聚合
+     **/
+    public MetricsQuery count(String name) {
+        return add(name, Metric.COUNT, null);
+    }
+
+    public String[] getIndices() {
+        return indices;
+    }
+
+    public String[] getTypes() {
+        return types;
+    }
+
+    public QueryBuilder getQuery() {
+        return query;
+    }
+
+    public List<Spec> getMetrics() {
+        return Collections.unmodifiableList(metrics);
+    }
+
+    private MetricsQuery add(String name, Metric metric, String field) {
+        for (Spec spec : metrics) {
+            if (spec.getName().equals(name)) {
+                throw new IllegalArgumentException("duplicate metric name [" + name + "]");
+            }
+        }
+        metrics.add(new Spec(name, metric, field));
+        return this;
+    }
+
+    /**
+     * 单个指标: 结果名称, 指标类型, 字段
+     */
+    @Value
+    public static class Spec {
+        private String name;
+        private Metric metric;
+        private String field;
+    }
+}
@@ -0,0 +1,43 @@
+package com.es.aggregation;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 10:20
+ * @Description: 指标查询的结果, 按 {@link MetricsQuery} 中的名称取值
+ */
+public class MetricsResult {
+    private final Map<String, Double> values;
+    private final long totalHits;
+
+    MetricsResult(Map<String, Double> values, long totalHits) {
+        this.values = Collections.unmodifiableMap(values);
+        this.totalHits = totalHits;
+    }
+
+    /**
+     * @description 没有文档时min/max/avg为正负无穷或NaN, 和es的返回一致
+     **/
+    public double get(String name) {
+        Double value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("unknown metric [" + name + "]");
+        }
+        return value;
+    }
+
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    public Map<String, Double> asMap() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.es.bulk;
+
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 11:05
+ * @Description: 批量写入参数, 满足任意一个阈值(条数/字节数/时间间隔)就会触发一次bulk
+ */
+@Value
+@Builder
+public class BulkConfig {
+    /**
+     * 每个bulk最多包含的请求条数
+     */
+    @Builder.Default
+    private int bulkActions = 5000;
+    /**
+     * 每个bulk最多包含的字节数
+     */
+    @Builder.Default
+    private ByteSizeValue bulkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
+    /**
+     * 定时flush的间隔, 避免数据量小时长时间不提交
+     */
+    @Builder.Default
+    private TimeValue flushInterval = TimeValue.timeValueSeconds(1);
+    /**
+     * 同时在途的bulk请求数, 0表示同步提交
+     */
+    @Builder.Default
+    private int concurrentRequests = 2;
+    /**
+     * 被拒绝(EsRejectedExecutionException)时的首次重试等待时间, 之后指数增长
+     */
+    @Builder.Default
+    private TimeValue retryInitialDelay = TimeValue.timeValueMillis(100);
+    /**
+     * 被拒绝时的最大重试次数
+     */
+    @Builder.Default
+    private int maxRetries = 8;
+
+    public static BulkConfig defaults() {
+        return BulkConfig.builder().build();
+    }
+}
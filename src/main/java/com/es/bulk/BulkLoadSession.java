@@ -0,0 +1,143 @@
+package com.es.bulk;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.io.Closeable;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 14:20
+ * @Description: 大批量导入期间临时调整索引配置
+ * <p>
+ * 开始时把refresh_interval设为-1, 副本数设为0, 导入过程中不再每秒生成新的segment, 也不用同步写副本;
+ * close时先refresh一次, 调用过 {@link #complete()} 时再按需force merge, 然后恢复原来的配置, 最后等待索引变绿。
+ * 导入失败没有调用complete时同样会恢复配置, 只是跳过force merge。
+ * <pre>
+ * try (BulkLoadSession session = BulkLoadSession.begin(client, "mytest").forceMerge(1)) {
+ *     ...
+ *     session.complete();
+ * }
+ * </pre>
+ * 配置了auto_expand_replicas的索引副本数由集群自动调整, 这种情况下不会修改副本数。
+ */
+public class BulkLoadSession implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(BulkLoadSession.class);
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String AUTO_EXPAND_REPLICAS = "index.auto_expand_replicas";
+
+    private final Client client;
+    private final String index;
+    /**
+     * 原来的配置, 没有显式设置的项为null, 恢复时重置为默认值
+     */
+    private final String refreshInterval;
+    private final String replicas;
+    private final boolean touchReplicas;
+
+    private int maxNumSegments = -1;
+    private TimeValue greenTimeout = TimeValue.timeValueMinutes(5);
+    private volatile boolean completed;
+    private boolean closed;
+
+    private BulkLoadSession(Client client, String index, Settings current) {
+        this.client = client;
+        this.index = index;
+        this.refreshInterval = current.get(REFRESH_INTERVAL);
+        this.replicas = current.get(IndexMetaData.SETTING_NUMBER_OF_REPLICAS);
+        String autoExpand = current.get(AUTO_EXPAND_REPLICAS);
+        this.touchReplicas = autoExpand == null || "false".equals(autoExpand);
+    }
+
+    /**
+     * @description 记录索引当前的配置并切换到导入模式
+     **/
+    public static BulkLoadSession begin(Client client, String index) {
+        Settings current = client.admin().indices().prepareGetSettings(index).get().getIndexToSettings().get(index);
+        if (current == null) {
+            throw new IllegalArgumentException("index [" + index + "] does not exist");
+        }
+        BulkLoadSession session = new BulkLoadSession(client, index, current);
+        Settings.Builder loading = Settings.builder().put(REFRESH_INTERVAL, "-1");
+        if (session.touchReplicas) {
+            loading.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0);
+        }
+        LOGGER.info("index [{}] entering bulk load mode, original refresh_interval [{}], number_of_replicas [{}]",
+                index, session.refreshInterval, session.replicas);
+        client.admin().indices().prepareUpdateSettings(index).setSettings(loading).get();
+        return session;
+    }
+
+    /**
+     * @description 导入成功后force merge到指定的segment数, 只适合导入后不再频繁修改的索引
+     **/
+    public BulkLoadSession forceMerge(int maxNumSegments) {
+        this.maxNumSegments = maxNumSegments;
+        return this;
+    }
+
+    /**
+     * @description 恢复副本后等待索引变绿的最长时间
+     **/
+    public BulkLoadSession greenTimeout(TimeValue greenTimeout) {
+        this.greenTimeout = greenTimeout;
+        return this;
+    }
+
+    /**
+     * @description 标记导入成功, 没有调用时close只恢复配置
+     **/
+    public void complete() {
+        completed = true;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 副本还是0的时候refresh和merge, 副本恢复时直接复制合并好的segment; 先恢复副本的话, 副本会先拷一遍
+        // 没合并的segment, 再各自合并一遍, merge的IO翻倍
+        try {
+            client.admin().indices().prepareRefresh(index).get();
+            if (completed && maxNumSegments > 0) {
+                LOGGER.info("force merging index [{}] to [{}] segments", index, maxNumSegments);
+                client.admin().indices().prepareForceMerge(index).setMaxNumSegments(maxNumSegments).get();
+            }
+        } finally {
+            Settings.Builder restore = Settings.builder();
+            put(restore, REFRESH_INTERVAL, refreshInterval);
+            if (touchReplicas) {
+                put(restore, IndexMetaData.SETTING_NUMBER_OF_REPLICAS, replicas);
+            }
+            client.admin().indices().prepareUpdateSettings(index).setSettings(restore).get();
+        }
+        ClusterHealthResponse health = client.admin().cluster().prepareHealth(index)
+                .setWaitForGreenStatus()
+                .setTimeout(greenTimeout)
+                .get();
+        if (health.isTimedOut()) {
+            LOGGER.warn("index [{}] did not turn green within [{}], status [{}]", index, greenTimeout, health.getStatus());
+        }
+        LOGGER.info("index [{}] left bulk load mode, completed [{}]", index, completed);
+    }
+
+    private static void put(Settings.Builder settings, String key, String value) {
+        if (value == null) {
+            settings.putNull(key);
+        } else {
+            settings.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.es.bulk;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 23:30
+ * @Description: 并行导入NDJSON(每行一个json文档)文件
+ * <p>
+ * 文件按chunkSize在换行处切成若干块, 多个worker各自把分到的块映射到内存, 按行切出文档。
+ * 每攒够一个bulk的行, 把这段字节一次拷贝出来, 每行作为一个 {@link BytesArray} 切片直接作为IndexRequest的source,
+ * 不解析成对象也不重新序列化。本地只检查一行是不是以 { 开头、} 结尾, 其他错误由集群判断。
+ * <p>
+ * 默认使用自动生成的id, es写入时不需要查找已有版本, 速度最快; 指定idField时会解析每行直到找到该字段。
+ * 被拒绝(429)的条目按BulkConfig中的退避参数重试, 仍然失败以及格式错误的行都计入 {@link Result#getRejected()},
+ * 并记录前 {@link #MAX_REPORTED_REJECTIONS} 条的文件偏移和原因。
+ * <pre>
+ * NdjsonLoader.Result result = new NdjsonLoader(client, "mytest", "product").workers(8).load(path);
+ * </pre>
+ */
+public class NdjsonLoader {
+    private static final Logger LOGGER = LogManager.getLogger(NdjsonLoader.class);
+    static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final BulkSender sender;
+    private final String index;
+    private final String type;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private ByteSizeValue chunkSize = new ByteSizeValue(32, ByteSizeUnit.MB);
+    private BulkConfig bulk = BulkConfig.defaults();
+    private String idField;
+
+    public NdjsonLoader(final Client client, String index, String type) {
+        this(new BulkSender() {
+            @Override
+            public BulkResponse bulk(BulkRequest request) {
+                return client.bulk(request).actionGet();
+            }
+        }, index, type);
+    }
+
+    NdjsonLoader(BulkSender sender, String index, String type) {
+        this.sender = sender;
+        this.index = index;
+        this.type = type;
+    }
+
+    /**
+     * @description 并行的worker数, 也是同时在途的bulk数
+     **/
+    public NdjsonLoader workers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be >= 1 but was " + workers);
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * @description 每个worker一次处理的文件块大小, 一块最多映射2GB
+     **/
+    public NdjsonLoader chunkSize(ByteSizeValue chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @description 使用其中的bulkActions、bulkSize和重试参数
+     **/
+    public NdjsonLoader bulk(BulkConfig bulk) {
+        this.bulk = bulk;
+        return this;
+    }
+
+    /**
+     * @description 用文档中的这个顶层字段作为id, 为null时自动生成id
+     **/
+    public NdjsonLoader idField(String idField) {
+        this.idField = idField;
+        return this;
+    }
+
+    public Result load(Path file) throws IOException {
+        final long start = System.nanoTime();
+        final Result result = new Result();
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long[] boundaries = boundaries(channel, chunkSize.getBytes());
+            final AtomicInteger nextChunk = new AtomicInteger();
+            LOGGER.info("loading {} ({}) into [{}/{}] as {} chunks with {} workers", file,
+                    new ByteSizeValue(channel.size()), index, type, boundaries.length - 1, workers);
+            ExecutorService executor = Executors.newFixedThreadPool(workers, EsExecutors.daemonThreadFactory("ndjson-loader"));
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            // worker按顺序领取文件块, 块大小不均时也不会有worker闲着
+                            for (int chunk = nextChunk.getAndIncrement(); chunk < boundaries.length - 1;
+                                 chunk = nextChunk.getAndIncrement()) {
+                                loadChunk(channel, boundaries[chunk], boundaries[chunk + 1], result);
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("loading " + file + " interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("failed to load " + file, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        LOGGER.info("loaded {}: {}", file, result);
+        return result;
+    }
+
+    private void loadChunk(FileChannel channel, long from, long to, Result result) throws Exception {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("chunk [" + from + ", " + to + ") is larger than 2GB, a single line is too long");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int limit = buffer.limit();
+        int position = 0;
+        List<int[]> lines = new ArrayList<>();
+        while (position < limit) {
+            // 找出一个bulk的行, 记录每行在块内的起止位置
+            int batchStart = position;
+            long batchBytes = 0;
+            lines.clear();
+            while (position < limit && lines.size() < bulk.getBulkActions() && batchBytes < bulk.getBulkSize().getBytes()) {
+                int end = position;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                lines.add(new int[]{position, end});
+                batchBytes += end - position;
+                position = end + 1;
+            }
+            int batchEnd = Math.min(position, limit);
+            // 整段拷贝一次, 每行作为切片引用
+            byte[] bytes = new byte[batchEnd - batchStart];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(batchStart);
+            slice.get(bytes);
+            result.bytes.addAndGet(bytes.length);
+            sendBatch(bytes, batchStart, from, lines, result);
+        }
+    }
+
+    private void sendBatch(byte[] bytes, int batchStart, long chunkOffset, List<int[]> lines, Result result)
+            throws Exception {
+        BulkRequest request = new BulkRequest();
+        List<Long> offsets = new ArrayList<>(lines.size());
+        for (int[] line : lines) {
+            int from = line[0] - batchStart;
+            int to = trimEnd(bytes, from, line[1] - batchStart);
+            from = trimStart(bytes, from, to);
+            if (from == to) {
+                // 空行
+                continue;
+            }
+            result.lines.incrementAndGet();
+            long offset = chunkOffset + line[0];
+            if (bytes[from] != '{' || bytes[to - 1] != '}') {
+                result.reject(offset, "not a json object");
+                continue;
+            }
+            BytesArray source = new BytesArray(bytes, from, to - from);
+            IndexRequest index = new IndexRequest(this.index, type).source(source, XContentType.JSON);
+            if (idField != null) {
+                String id = extractId(source);
+                if (id == null) {
+                    result.reject(offset, "missing id field [" + idField + "]");
+                    continue;
+                }
+                index.id(id);
+            }
+            request.add(index);
+            offsets.add(offset);
+        }
+        if (request.numberOfActions() == 0) {
+            return;
+        }
+        send(request, offsets, result);
+    }
+
+    /**
+     * @description 发送bulk, 被拒绝(429)的条目退避后重发
+     * <p>
+     * 不用es的Retry: 它把失败的条目组成新的BulkRequest重发, 合并后的响应里itemId是相对重发批次的,
+     * 对不上原来的行。这里每次重发都带着自己的offsets, itemId始终指向当次请求。
+     **/
+    private void send(BulkRequest request, List<Long> offsets, Result result) throws InterruptedException {
+        Iterator<TimeValue> backoff = BackoffPolicy.exponentialBackoff(bulk.getRetryInitialDelay(), bulk.getMaxRetries()).iterator();
+        while (true) {
+            BulkResponse response;
+            try {
+                response = sender.bulk(request);
+            } catch (RuntimeException e) {
+                // 整个请求被协调节点拒绝时全部重发
+                if (!(ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) || !backoff.hasNext()) {
+                    throw e;
+                }
+                Thread.sleep(backoff.next().millis());
+                continue;
+            }
+            BulkRequest retry = new BulkRequest();
+            List<Long> retryOffsets = new ArrayList<>();
+            boolean canRetry = backoff.hasNext();
+            for (BulkItemResponse item : response) {
+                long offset = offsets.get(item.getItemId());
+                if (!item.isFailed()) {
+                    result.indexed.incrementAndGet();
+                } else if (canRetry && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                    retry.add(request.requests().get(item.getItemId()));
+                    retryOffsets.add(offset);
+                } else {
+                    result.reject(offset, item.getFailureMessage());
+                }
+            }
+            if (retry.numberOfActions() == 0) {
+                return;
+            }
+            result.retries.addAndGet(retry.numberOfActions());
+            Thread.sleep(backoff.next().millis());
+            request = retry;
+            offsets = retryOffsets;
+        }
+    }
+
+    private String extractId(BytesArray source) throws IOException {
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY, source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                String field = parser.currentName();
+                XContentParser.Token token = parser.nextToken();
+                if (field.equals(idField) && token.isValue()) {
+                    return parser.text();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // 格式错误的行交给集群报错
+            return null;
+        }
+    }
+
+    /**
+     * @description 按chunkSize切分文件, 每个切分点都后移到下一行的开头, 返回的数组包含开头0和结尾文件长度
+     **/
+    static long[] boundaries(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long nominal = chunkSize;
+        while (nominal < size) {
+            long next = nextLineStart(channel, nominal - 1, buffer);
+            if (next >= size) {
+                break;
+            }
+            if (next > boundaries.get(boundaries.size() - 1)) {
+                boundaries.add(next);
+            }
+            nominal = Math.max(nominal + chunkSize, next + 1);
+        }
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @description 从position开始(含)找到第一个换行, 返回它后面一个字节的位置
+     **/
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        long offset = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && isWhitespace(bytes[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && isWhitespace(bytes[to - 1])) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * 同步发送bulk, 测试时可以替换
+     */
+    interface BulkSender {
+        BulkResponse bulk(BulkRequest request);
+    }
+
+    /**
+     * 一次导入的统计, 导入过程中多个worker同时更新
+     */
+    public static class Result {
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final List<Rejection> rejections = Collections.synchronizedList(new ArrayList<Rejection>());
+        private volatile long elapsedNanos;
+
+        Result() {
+        }
+
+        private void reject(long offset, String reason) {
+            if (rejected.incrementAndGet() <= MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(offset, reason));
+            }
+        }
+
+        /**
+         * @description 非空行数
+         **/
+        public long getLines() {
+            return lines.get();
+        }
+
+        public long getIndexed() {
+            return indexed.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /**
+         * @description 因为429重发的条目数, 同一条重发多次时计多次
+         **/
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double getDocsPerSecond() {
+            return elapsedNanos == 0 ? 0 : indexed.get() * 1e9 / elapsedNanos;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes.get() * 1e9 / elapsedNanos / (1024 * 1024);
+        }
+
+        /**
+         * @description 前 {@link #MAX_REPORTED_REJECTIONS} 条被拒绝的行
+         **/
+        public List<Rejection> getRejections() {
+            synchronized (rejections) {
+                return new ArrayList<>(rejections);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d lines, %d indexed, %d rejected, %d retried in %.1fs (%.0f docs/s, %.1f MB/s)",
+                    getLines(), getIndexed(), getRejected(), getRetries(), elapsedNanos / 1e9, getDocsPerSecond(),
+                    getMegabytesPerSecond());
+        }
+    }
+
+    /**
+     * 被拒绝的一行, offset是该行在文件中的字节偏移
+     */
+    public static class Rejection {
+        private final long offset;
+        private final String reason;
+
+        Rejection(long offset, String reason) {
+            this.offset = offset;
+            this.reason = reason;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "offset " + offset + ": " + reason;
+        }
+    }
+}
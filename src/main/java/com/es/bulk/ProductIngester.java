@@ -0,0 +1,151 @@
+package com.es.bulk;
+
+import com.entry.Product;
+import com.es.codec.ProductCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 11:20
+ * @Description: 基于BulkProcessor的Product持续写入管道
+ * <p>
+ * 调用方只管不停地add, 请求会按条数、字节数、时间间隔自动攒成bulk并发提交。
+ * 集群线程池满了返回rejected时, BulkProcessor只会把失败的那部分请求按指数退避重新提交,
+ * 已经成功的请求不会重复写入。重试之后仍然失败的请求会记录日志并计入 {@link #getFailed()}。
+ * <p>
+ * 本类线程安全, 用完之后必须调用 {@link #close()} 把缓冲区里剩下的数据刷出去。
+ */
+public class ProductIngester implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(ProductIngester.class);
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final String index;
+    private final String type;
+    private final BulkProcessor processor;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ProductIngester(Client client, String index, String type) {
+        this(client, index, type, BulkConfig.defaults());
+    }
+
+    public ProductIngester(Client client, String index, String type, BulkConfig config) {
+        this.index = index;
+        this.type = type;
+        this.processor = BulkProcessor.builder(client, new Listener())
+                .setBulkActions(config.getBulkActions())
+                .setBulkSize(config.getBulkSize())
+                .setFlushInterval(config.getFlushInterval())
+                .setConcurrentRequests(config.getConcurrentRequests())
+                .setBackoffPolicy(BackoffPolicy.exponentialBackoff(config.getRetryInitialDelay(), config.getMaxRetries()))
+                .build();
+    }
+
+    /**
+     * @description 新增一条数据, id由es自动生成
+     **/
+    public void index(Product product) {
+        index(null, product);
+    }
+
+    /**
+     * @description 新增或覆盖一条数据
+     **/
+    public void index(String id, Product product) {
+        add(new IndexRequest(index, type, id).source(ProductCodec.encode(product), ProductCodec.CONTENT_TYPE));
+    }
+
+    /**
+     * @description 局部更新, product中为null的字段不会被更新
+     **/
+    public void update(String id, Product product) {
+        add(new UpdateRequest(index, type, id).doc(new IndexRequest().source(ProductCodec.encode(product), ProductCodec.CONTENT_TYPE)));
+    }
+
+    public void delete(String id) {
+        add(new DeleteRequest(index, type, id));
+    }
+
+    /**
+     * @description 立即提交缓冲区中的请求
+     **/
+    public void flush() {
+        processor.flush();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @description 刷出剩余数据并等待所有在途的bulk完成
+     **/
+    @Override
+    public void close() {
+        try {
+            if (!processor.awaitClose(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("bulk requests to [{}/{}] still in flight after {}s", index, type, CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void add(DocWriteRequest<?> request) {
+        submitted.incrementAndGet();
+        processor.add(request);
+    }
+
+    private class Listener implements BulkProcessor.Listener {
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            LOGGER.debug("executing bulk [{}] with {} requests", executionId, request.numberOfActions());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            int failures = 0;
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    failures++;
+                    LOGGER.warn("bulk [{}] failed to write [{}/{}/{}]: {}", executionId,
+                            item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+                }
+            }
+            failed.addAndGet(failures);
+            succeeded.addAndGet(response.getItems().length - failures);
+            LOGGER.debug("bulk [{}] took {}, {} failures", executionId, response.getTook(), failures);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            failed.addAndGet(request.numberOfActions());
+            LOGGER.error("bulk [{}] with {} requests failed", executionId, request.numberOfActions(), failure);
+        }
+    }
+}
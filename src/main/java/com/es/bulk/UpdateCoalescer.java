@@ -0,0 +1,270 @@
+package com.es.bulk;
+
+import com.es.cache.DocKey;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.xcontent.XContentHelper;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 15:00
+ * @Description: 合并同一文档的局部更新, 攒成bulk发送
+ * <p>
+ * 窗口(window)内对同一个(index, type, id)的多次局部更新合并成一个UpdateRequest, 字段按先后顺序覆盖,
+ * 嵌套对象和es处理partial doc一样逐层合并。价格、库存这类频繁变化的字段一个窗口内只产生一次写入和一次版本号变化。
+ * <p>
+ * upsert的合并按依次执行的效果计算: 文档不存在时先插入第一条带upsert的请求, 之后的局部更新再叠加上去。
+ * 不带upsert的更新排在upsert之前时, 文档不存在会直接使用upsert, 这条更新对应的future也会正常完成。
+ * <p>
+ * 同一时间只有一个bulk在途, 保证同一文档的前后两批更新按顺序生效。同一文档的调用方共用一个future。
+ */
+public class UpdateCoalescer implements Closeable {
+    public static final TimeValue DEFAULT_WINDOW = TimeValue.timeValueMillis(50);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    private static final int RETRY_ON_CONFLICT = 3;
+
+    private final Client client;
+    private final TimeValue window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore inFlight = new Semaphore(1);
+    /**
+     * 取出批次和拿到发送许可必须在这把锁里一起完成, 见 {@link #flush()}
+     */
+    private final Object dispatchLock = new Object();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+
+    private Map<DocKey, PendingUpdate> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public UpdateCoalescer(Client client) {
+        this(client, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public UpdateCoalescer(Client client, TimeValue window, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be >= 1 but was " + maxBatchSize);
+        }
+        this.client = client;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("update-coalescer"));
+    }
+
+    /**
+     * @description 局部更新, 文档不存在时future以DocumentMissingException失败
+     **/
+    public CompletableFuture<UpdateResponse> update(String index, String type, String id, Map<String, Object> doc) {
+        return add(new DocKey(index, type, id), doc, null);
+    }
+
+    /**
+     * @description 局部更新, 文档不存在时把doc作为完整文档插入(doc_as_upsert)
+     **/
+    public CompletableFuture<UpdateResponse> upsert(String index, String type, String id, Map<String, Object> doc) {
+        return add(new DocKey(index, type, id), doc, doc);
+    }
+
+    /**
+     * @description 局部更新, 文档不存在时插入upsert
+     **/
+    public CompletableFuture<UpdateResponse> upsert(String index, String type, String id,
+                                                    Map<String, Object> doc, Map<String, Object> upsert) {
+        return add(new DocKey(index, type, id), doc, upsert);
+    }
+
+    private CompletableFuture<UpdateResponse> add(DocKey key, Map<String, Object> doc, Map<String, Object> upsert) {
+        boolean full = false;
+        CompletableFuture<UpdateResponse> future;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("update coalescer is closed");
+            }
+            received.incrementAndGet();
+            PendingUpdate update = pending.get(key);
+            if (update != null) {
+                update.merge(doc, upsert);
+                return update.future;
+            }
+            update = new PendingUpdate(doc, upsert);
+            future = update.future;
+            pending.put(key, update);
+            if (pending.size() >= maxBatchSize) {
+                full = true;
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, window.millis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full) {
+            flush();
+        }
+        return future;
+    }
+
+    /**
+     * @description 立即发送当前攒着的更新
+     **/
+    public void flush() {
+        // 定时器、攒满、显式flush和close可能同时调用这里。如果取出批次后先释放锁再等许可,
+        // 后取出的批次可能先发出去, 同一文档较早的更新反而最后生效, 覆盖掉新的更新
+        synchronized (dispatchLock) {
+            Map<DocKey, PendingUpdate> batch;
+            synchronized (this) {
+                batch = takePending();
+            }
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * @description 发送剩余的更新并停止定时器, 会等待最后一个bulk返回
+     **/
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+        inFlight.acquireUninterruptibly();
+        inFlight.release();
+    }
+
+    /**
+     * @description 调用方提交的更新次数
+     **/
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * @description 合并之后实际发出的UpdateRequest个数
+     **/
+    public long getSent() {
+        return sent.get();
+    }
+
+    private Map<DocKey, PendingUpdate> takePending() {
+        Map<DocKey, PendingUpdate> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<DocKey, PendingUpdate> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BulkRequest request = new BulkRequest();
+        final List<CompletableFuture<UpdateResponse>> futures = new ArrayList<>(batch.size());
+        for (Map.Entry<DocKey, PendingUpdate> entry : batch.entrySet()) {
+            request.add(entry.getValue().toRequest(entry.getKey()).retryOnConflict(RETRY_ON_CONFLICT));
+            futures.add(entry.getValue().future);
+        }
+        sent.addAndGet(batch.size());
+        // 上一批没有返回之前不发送下一批, 否则同一文档的两次更新可能乱序; 调用方持有dispatchLock
+        inFlight.acquireUninterruptibly();
+        try {
+            client.bulk(request, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    inFlight.release();
+                    // 返回结果和请求的顺序一致
+                    BulkItemResponse[] items = response.getItems();
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i].isFailed()) {
+                            futures.get(i).completeExceptionally(items[i].getFailure().getCause());
+                        } else {
+                            futures.get(i).complete(items[i].<UpdateResponse>getResponse());
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    inFlight.release();
+                    for (CompletableFuture<UpdateResponse> future : futures) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @description 同一文档在窗口内合并后的更新
+     **/
+    static class PendingUpdate {
+        final CompletableFuture<UpdateResponse> future = new CompletableFuture<>();
+        final Map<String, Object> doc;
+        Map<String, Object> upsert;
+
+        PendingUpdate(Map<String, Object> doc, Map<String, Object> upsert) {
+            this.doc = copy(doc);
+            this.upsert = upsert == null ? null : copy(upsert);
+        }
+
+        void merge(Map<String, Object> changes, Map<String, Object> newUpsert) {
+            XContentHelper.update(doc, copy(changes), false);
+            if (upsert != null) {
+                // 文档不存在时前面的upsert已经插入, 这次的改动叠加在插入的文档上
+                XContentHelper.update(upsert, copy(changes), false);
+            } else if (newUpsert != null) {
+                upsert = copy(newUpsert);
+            }
+        }
+
+        UpdateRequest toRequest(DocKey key) {
+            UpdateRequest request = new UpdateRequest(key.getIndex(), key.getType(), key.getId()).doc(doc);
+            if (upsert != null) {
+                request.upsert(upsert);
+            }
+            return request;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> copy(Map<String, Object> source) {
+            // 合并时会改写嵌套的map, 不能改到调用方传进来的对象
+            Map<String, Object> copy = new LinkedHashMap<>(source);
+            for (Map.Entry<String, Object> entry : copy.entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    entry.setValue(copy((Map<String, Object>) entry.getValue()));
+                }
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.es.cache;
+
+import lombok.Value;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 17:02
+ * @Description: 文档的唯一标识 (index, type, id)
+ */
+@Value
+public class DocKey {
+    private String index;
+    private String type;
+    private String id;
+}
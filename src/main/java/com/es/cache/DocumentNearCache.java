@@ -0,0 +1,161 @@
+package com.es.cache;
+
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 17:10
+ * @Description: 客户端的文档近端缓存(read-through)
+ * <p>
+ * get先查本地缓存, 没有再去集群查并放入缓存。通过本类的 index/update/delete/bulk 写入时,
+ * 会根据返回的 _version 让旧版本失效: 缓存里只会留下一个"至少是这个版本"的标记,
+ * 之后读到的版本不低于标记时才会重新缓存。这样即使写入前发出的get晚于写入返回, 也不会把旧数据放回缓存。
+ * <p>
+ * 其他进程的写入感知不到, 只能依靠ttl过期, 所以只适合读多写少、能接受ttl内短暂不一致的场景。
+ */
+public class DocumentNearCache {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Client client;
+    private final Cache<DocKey, Entry> cache;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DocumentNearCache(Client client) {
+        this(client, NearCacheConfig.defaults());
+    }
+
+    public DocumentNearCache(Client client, NearCacheConfig config) {
+        this.client = client;
+        this.cache = CacheBuilder.<DocKey, Entry>builder()
+                .setMaximumWeight(config.getMaxEntries())
+                .setExpireAfterWrite(config.getTtl())
+                .build();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @description 读取文档, 命中缓存时不访问集群
+     **/
+    public GetResponse get(String index, String type, String id) {
+        DocKey key = new DocKey(index, type, id);
+        Entry entry = cache.get(key);
+        if (entry != null && entry.response != null) {
+            hits.incrementAndGet();
+            return entry.response;
+        }
+        misses.incrementAndGet();
+        GetResponse response = client.prepareGet(index, type, id).get();
+        if (response.isExists()) {
+            synchronized (lock(key)) {
+                Entry current = cache.get(key);
+                if (current == null || response.getVersion() >= current.version) {
+                    cache.put(key, new Entry(response.getVersion(), response));
+                }
+            }
+        }
+        return response;
+    }
+
+    public IndexResponse index(IndexRequest request) {
+        IndexResponse response = client.index(request).actionGet();
+        onWrite(response);
+        return response;
+    }
+
+    public UpdateResponse update(UpdateRequest request) {
+        UpdateResponse response = client.update(request).actionGet();
+        onWrite(response);
+        return response;
+    }
+
+    public DeleteResponse delete(DeleteRequest request) {
+        DeleteResponse response = client.delete(request).actionGet();
+        onWrite(response);
+        return response;
+    }
+
+    public BulkResponse bulk(BulkRequest request) {
+        BulkResponse response = client.bulk(request).actionGet();
+        onWrite(response);
+        return response;
+    }
+
+    /**
+     * @description 用写入返回的版本号让缓存失效, 适用于没有经过本类发出的写入
+     **/
+    public void onWrite(DocWriteResponse response) {
+        DocKey key = new DocKey(response.getIndex(), response.getType(), response.getId());
+        long version = response.getVersion();
+        synchronized (lock(key)) {
+            Entry current = cache.get(key);
+            if (current == null || current.version < version) {
+                cache.put(key, new Entry(version, null));
+            }
+        }
+    }
+
+    public void onWrite(BulkResponse response) {
+        for (BulkItemResponse item : response.getItems()) {
+            if (!item.isFailed()) {
+                onWrite(item.getResponse());
+            }
+        }
+    }
+
+    public void invalidate(String index, String type, String id) {
+        cache.invalidate(new DocKey(index, type, id));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return cache.count();
+    }
+
+    private Object lock(DocKey key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * response为null时表示只记录了写入的版本号, 需要重新从集群读取
+     */
+    private static final class Entry {
+        private final long version;
+        private final GetResponse response;
+
+        private Entry(long version, GetResponse response) {
+            this.version = version;
+            this.response = response;
+        }
+    }
+}
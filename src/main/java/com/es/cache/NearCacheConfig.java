@@ -0,0 +1,29 @@
+package com.es.cache;
+
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 17:05
+ * @Description: 文档近端缓存的参数
+ */
+@Value
+@Builder
+public class NearCacheConfig {
+    /**
+     * 最多缓存的文档数, 超过后按LRU淘汰
+     */
+    @Builder.Default
+    private long maxEntries = 10000;
+    /**
+     * 写入缓存后的存活时间, 用来兜底其他进程对文档的修改
+     */
+    @Builder.Default
+    private TimeValue ttl = TimeValue.timeValueMinutes(1);
+
+    public static NearCacheConfig defaults() {
+        return NearCacheConfig.builder().build();
+    }
+}
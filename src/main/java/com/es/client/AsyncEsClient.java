@@ -0,0 +1,182 @@
+package com.es.client;
+
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkAction;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteAction;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetAction;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetAction;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexAction;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateAction;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 19:10
+ * @Description: 基于ActionListener的异步客户端
+ * <p>
+ * 所有方法立即返回 {@link CompletableFuture}, 调用线程不会阻塞等待集群返回, 可以用
+ * thenApply / thenCompose 等组合多个请求。带timeout参数的方法在超时后让future以
+ * {@link ElasticsearchTimeoutException} 失败, 但已经发出的请求仍会在集群上执行完。
+ * <p>
+ * future在transport线程上完成, 后续的回调里不要再做阻塞操作, 需要的话用 thenXxxAsync 切换线程池。
+ */
+public class AsyncEsClient {
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("async-es-client-timer"));
+
+    private final Client client;
+
+    public AsyncEsClient(Client client) {
+        this.client = client;
+    }
+
+    public CompletableFuture<IndexResponse> index(IndexRequest request) {
+        return index(request, null);
+    }
+
+    public CompletableFuture<IndexResponse> index(IndexRequest request, TimeValue timeout) {
+        return execute(IndexAction.INSTANCE, request, timeout);
+    }
+
+    public CompletableFuture<GetResponse> get(GetRequest request) {
+        return get(request, null);
+    }
+
+    public CompletableFuture<GetResponse> get(GetRequest request, TimeValue timeout) {
+        return execute(GetAction.INSTANCE, request, timeout);
+    }
+
+    public CompletableFuture<MultiGetResponse> multiGet(MultiGetRequest request) {
+        return multiGet(request, null);
+    }
+
+    public CompletableFuture<MultiGetResponse> multiGet(MultiGetRequest request, TimeValue timeout) {
+        return execute(MultiGetAction.INSTANCE, request, timeout);
+    }
+
+    public CompletableFuture<UpdateResponse> update(UpdateRequest request) {
+        return update(request, null);
+    }
+
+    public CompletableFuture<UpdateResponse> update(UpdateRequest request, TimeValue timeout) {
+        return execute(UpdateAction.INSTANCE, request, timeout);
+    }
+
+    /**
+     * @description 文档存在时做局部更新, 不存在时把doc作为新文档写入
+     **/
+    public CompletableFuture<UpdateResponse> upsert(String index, String type, String id,
+                                                    BytesReference doc, XContentType xContentType) {
+        return upsert(index, type, id, doc, xContentType, null);
+    }
+
+    public CompletableFuture<UpdateResponse> upsert(String index, String type, String id,
+                                                    BytesReference doc, XContentType xContentType, TimeValue timeout) {
+        UpdateRequest request = new UpdateRequest(index, type, id)
+                .doc(new IndexRequest().source(doc, xContentType))
+                .docAsUpsert(true);
+        return update(request, timeout);
+    }
+
+    public CompletableFuture<DeleteResponse> delete(DeleteRequest request) {
+        return delete(request, null);
+    }
+
+    public CompletableFuture<DeleteResponse> delete(DeleteRequest request, TimeValue timeout) {
+        return execute(DeleteAction.INSTANCE, request, timeout);
+    }
+
+    public CompletableFuture<BulkResponse> bulk(BulkRequest request) {
+        return bulk(request, null);
+    }
+
+    public CompletableFuture<BulkResponse> bulk(BulkRequest request, TimeValue timeout) {
+        return execute(BulkAction.INSTANCE, request, timeout);
+    }
+
+    public CompletableFuture<SearchResponse> search(SearchRequest request) {
+        return search(request, null);
+    }
+
+    public CompletableFuture<SearchResponse> search(SearchRequest request, TimeValue timeout) {
+        return execute(SearchAction.INSTANCE, request, timeout);
+    }
+
+    /**
+     * @description 异步执行任意action, timeout为null时不设置超时
+     **/
+    public <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+    CompletableFuture<Response> execute(Action<Request, Response, RequestBuilder> action, Request request,
+                                        TimeValue timeout) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        client.execute(action, request, listener(future));
+        if (timeout != null) {
+            withTimeout(future, action.name(), timeout);
+        }
+        return future;
+    }
+
+    /**
+     * @description 把CompletableFuture包装成ActionListener
+     **/
+    public static <T> ActionListener<T> listener(final CompletableFuture<T> future) {
+        return new ActionListener<T>() {
+            @Override
+            public void onResponse(T response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    private static void withTimeout(final CompletableFuture<?> future, final String action, final TimeValue timeout) {
+        final ScheduledFuture<?> timer = TIMER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                future.completeExceptionally(new ElasticsearchTimeoutException("[{}] timed out after [{}]", action, timeout));
+            }
+        }, timeout.millis(), TimeUnit.MILLISECONDS);
+        future.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object response, Throwable failure) {
+                timer.cancel(false);
+            }
+        });
+    }
+}
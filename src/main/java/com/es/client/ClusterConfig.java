@@ -0,0 +1,79 @@
+package com.es.client;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.settings.Settings;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 10:12
+ * @Description: 集群连接配置, 同一份配置只会创建一个client(见 {@link EsClientFactory})
+ */
+@Value
+@Builder
+public class ClusterConfig {
+    /**
+     * 默认集群名称, 可以通过 -Des.cluster.name 覆盖
+     */
+    public static final String DEFAULT_CLUSTER_NAME = "bigdata";
+    /**
+     * 默认的transport地址, 多个地址用逗号分隔, 可以通过 -Des.hosts 覆盖
+     */
+    public static final String DEFAULT_HOSTS = "bigdata:9300";
+    private static final int DEFAULT_PORT = 9300;
+
+    private String clusterName;
+    /**
+     * host:port 形式的transport地址, 端口省略时使用9300
+     */
+    @Singular
+    private List<String> hosts;
+    /**
+     * 是否开启嗅探, 开启后client会自动发现集群中的其他数据节点
+     */
+    private boolean sniff;
+    /**
+     * 节点ping超时时间, 如 "5s", 为空时使用es默认值
+     */
+    private String pingTimeout;
+
+    /**
+     * @description 默认配置, 优先读取系统属性 es.cluster.name / es.hosts / es.sniff
+     **/
+    public static ClusterConfig defaults() {
+        String hosts = System.getProperty("es.hosts", DEFAULT_HOSTS);
+        return ClusterConfig.builder()
+                .clusterName(System.getProperty("es.cluster.name", DEFAULT_CLUSTER_NAME))
+                .hosts(Arrays.asList(hosts.split("\\s*,\\s*")))
+                .sniff(Boolean.getBoolean("es.sniff"))
+                .build();
+    }
+
+    /**
+     * @description 转换成TransportClient需要的Settings
+     **/
+    public Settings toSettings() {
+        Settings.Builder builder = Settings.builder()
+                .put("cluster.name", clusterName)
+                .put(TransportClient.CLIENT_TRANSPORT_SNIFF.getKey(), sniff);
+        if (pingTimeout != null) {
+            builder.put(TransportClient.CLIENT_TRANSPORT_PING_TIMEOUT.getKey(), pingTimeout);
+        }
+        return builder.build();
+    }
+
+    static String hostOf(String address) {
+        int idx = address.lastIndexOf(':');
+        return idx < 0 ? address : address.substring(0, idx);
+    }
+
+    static int portOf(String address) {
+        int idx = address.lastIndexOf(':');
+        return idx < 0 ? DEFAULT_PORT : Integer.parseInt(address.substring(idx + 1));
+    }
+}
@@ -0,0 +1,116 @@
+package com.es.client;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 10:20
+ * @Description: 共享的TransportClient工厂
+ * <p>
+ * TransportClient本身是线程安全的, 创建一次需要建立连接、握手以及启动线程池, 代价很高。
+ * 这里每个 {@link ClusterConfig} 只创建一个client, 在进程内共享, 进程退出时统一关闭。
+ * 调用方拿到client之后不要自己调用close()。
+ */
+public final class EsClientFactory {
+    private static final Logger LOGGER = LogManager.getLogger(EsClientFactory.class);
+    private static final TimeValue WARM_UP_TIMEOUT = TimeValue.timeValueSeconds(5);
+
+    private static final ConcurrentMap<ClusterConfig, TransportClient> CLIENTS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("es-client-shutdown") {
+            @Override
+            public void run() {
+                closeAll();
+            }
+        });
+    }
+
+    private EsClientFactory() {
+    }
+
+    /**
+     * @description 获取默认集群的client
+     **/
+    public static TransportClient getClient() {
+        return getClient(ClusterConfig.defaults());
+    }
+
+    /**
+     * @description 获取指定集群的client, 同一份配置返回同一个实例
+     **/
+    public static TransportClient getClient(ClusterConfig config) {
+        TransportClient client = CLIENTS.get(config);
+        if (client != null) {
+            return client;
+        }
+        synchronized (CLIENTS) {
+            client = CLIENTS.get(config);
+            if (client == null) {
+                client = create(config);
+                CLIENTS.put(config, client);
+            }
+        }
+        return client;
+    }
+
+    /**
+     * @description 关闭并移除指定集群的client
+     **/
+    public static void close(ClusterConfig config) {
+        TransportClient client = CLIENTS.remove(config);
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * @description 关闭所有client
+     **/
+    public static void closeAll() {
+        for (ClusterConfig config : CLIENTS.keySet()) {
+            close(config);
+        }
+    }
+
+    private static TransportClient create(ClusterConfig config) {
+        TransportClient client = new PreBuiltTransportClient(config.toSettings());
+        try {
+            for (String address : config.getHosts()) {
+                InetAddress host = InetAddress.getByName(ClusterConfig.hostOf(address));
+                client.addTransportAddress(new InetSocketTransportAddress(host, ClusterConfig.portOf(address)));
+            }
+        } catch (UnknownHostException e) {
+            client.close();
+            throw new IllegalArgumentException("unknown host in " + config.getHosts(), e);
+        }
+        warmUp(client, config);
+        return client;
+    }
+
+    /**
+     * 启动时先发一次集群健康检查, 让连接和线程池在第一次真正的请求之前就准备好
+     */
+    private static void warmUp(TransportClient client, ClusterConfig config) {
+        try {
+            ClusterHealthResponse health = client.admin().cluster().prepareHealth()
+                    .setTimeout(WARM_UP_TIMEOUT).get(WARM_UP_TIMEOUT);
+            LOGGER.info("connected to cluster [{}], status [{}], connected nodes {}",
+                    health.getClusterName(), health.getStatus(), client.connectedNodes());
+        } catch (Exception e) {
+            LOGGER.warn("warm up of cluster [{}] {} failed, connections will be retried lazily",
+                    config.getClusterName(), config.getHosts(), e);
+        }
+    }
+}
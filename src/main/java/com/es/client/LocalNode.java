@@ -0,0 +1,133 @@
+package com.es.client;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.transport.Netty4Plugin;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 20:05
+ * @Description: 进程内启动的单节点集群, 用于离线的测试和压测
+ * <p>
+ * 节点开启了netty4 transport, 可以通过 {@link #clusterConfig()} 拿到配置,
+ * 再用 {@link EsClientFactory} 创建和线上一样的TransportClient去连它。
+ * 数据目录默认是一个临时目录, close时删除。
+ */
+public class LocalNode implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(LocalNode.class);
+    public static final String CLUSTER_NAME = "local";
+
+    private final Path home;
+    private final boolean deleteOnClose;
+    private final Node node;
+    private volatile boolean started;
+
+    private LocalNode(Path home, boolean deleteOnClose, Settings extra) {
+        this.home = home;
+        this.deleteOnClose = deleteOnClose;
+        Settings settings = Settings.builder()
+                .put("path.home", home.toString())
+                .put("cluster.name", CLUSTER_NAME)
+                .put("node.name", "local-node")
+                .put("discovery.type", "single-node")
+                .put("network.host", "127.0.0.1")
+                .put("transport.type", "netty4")
+                .put("transport.tcp.port", "9350-9399")
+                .put("http.enabled", false)
+                .put(extra)
+                .build();
+        this.node = new PluginNode(settings, Collections.<Class<? extends Plugin>>singletonList(Netty4Plugin.class));
+    }
+
+    /**
+     * @description 在临时目录中启动一个节点, 并等待集群变为yellow
+     **/
+    public static LocalNode start() throws IOException {
+        return start(Files.createTempDirectory("es-local-node"), true, Settings.EMPTY);
+    }
+
+    /**
+     * @param home          节点的 path.home, 数据保存在 home/data 下
+     * @param deleteOnClose close时是否删除home目录
+     * @param extra         额外的节点配置, 会覆盖默认值
+     */
+    public static LocalNode start(Path home, boolean deleteOnClose, Settings extra) throws IOException {
+        LocalNode local = new LocalNode(home, deleteOnClose, extra);
+        try {
+            local.node.start();
+            local.started = true;
+        } catch (NodeValidationException e) {
+            local.close();
+            throw new IOException("failed to start local node", e);
+        }
+        local.node.client().admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+        LOGGER.info("local node started at [{}], home [{}]", local.transportAddress(), home);
+        return local;
+    }
+
+    /**
+     * @description 节点内部的client, 不经过网络
+     **/
+    public Client client() {
+        return node.client();
+    }
+
+    public TransportAddress transportAddress() {
+        return node.injector().getInstance(TransportService.class).boundAddress().publishAddress();
+    }
+
+    /**
+     * @description 连接本节点的配置, 可以交给 {@link EsClientFactory#getClient(ClusterConfig)}
+     **/
+    public ClusterConfig clusterConfig() {
+        TransportAddress address = transportAddress();
+        return ClusterConfig.builder()
+                .clusterName(CLUSTER_NAME)
+                .host(address.getAddress() + ":" + address.getPort())
+                .build();
+    }
+
+    public Path getHome() {
+        return home;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (started && !node.isClosed()) {
+                // 先关闭连向本节点的共享client, 避免它在节点关闭后不停重连
+                EsClientFactory.close(clusterConfig());
+            }
+            node.close();
+        } finally {
+            if (deleteOnClose) {
+                IOUtils.rm(home);
+            }
+        }
+    }
+
+    /**
+     * Node的带插件构造方法是protected的, 只能通过子类使用
+     */
+    private static class PluginNode extends Node {
+        PluginNode(Settings settings, Collection<Class<? extends Plugin>> plugins) {
+            super(new Environment(settings), plugins);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.es.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 15:40
+ * @Description: 实体字段和es字段的对应关系, 供 {@link HitMapper} 使用
+ * <p>
+ * 没有这个注解的字段按java字段名对应, static和transient字段不参与映射。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface EsField {
+    /**
+     * es中的字段名, 默认和java字段同名
+     */
+    String value() default "";
+
+    /**
+     * 从doc values读取而不是_source, 只适用于keyword、数值、日期等开启了doc values的字段
+     */
+    boolean docValue() default false;
+}
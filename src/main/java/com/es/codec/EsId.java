@@ -0,0 +1,16 @@
+package com.es.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 15:40
+ * @Description: 标记接收文档id的字段, 字段类型必须是String
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface EsId {
+}
@@ -0,0 +1,289 @@
+package com.es.codec;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 15:50
+ * @Description: 把命中结果直接映射成实体对象
+ * <p>
+ * {@link #prepare} 按实体的字段设置source过滤和docvalue_fields, 只取实体需要的字段;
+ * {@link #map} 直接从_source字节流里按token读取字段写进实体, 不经过 getSourceAsString / getSourceAsMap。
+ * 只支持顶层的字符串、数值和布尔字段, 实体需要无参构造方法。按 {@link EsField} 和 {@link EsId} 注解调整对应关系。
+ * <p>
+ * 同一个类的HitMapper会被缓存, 用 {@link #of} 获取, 线程安全。
+ */
+public final class HitMapper<T> {
+    private static final ConcurrentMap<Class<?>, HitMapper<?>> MAPPERS = ConcurrentCollections.newConcurrentMap();
+
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+    private final Map<String, Property> sourceProperties = new HashMap<>();
+    private final List<Property> docValueProperties = new ArrayList<>();
+    private final String[] sourceFields;
+    private final Field idField;
+
+    private HitMapper(Class<T> type) {
+        this.type = type;
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " must have a no-arg constructor", e);
+        }
+        Field id = null;
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                if (field.isAnnotationPresent(EsId.class)) {
+                    if (field.getType() != String.class) {
+                        throw new IllegalArgumentException("@EsId field " + field + " must be a String");
+                    }
+                    id = field;
+                    continue;
+                }
+                EsField annotation = field.getAnnotation(EsField.class);
+                String name = annotation == null || annotation.value().isEmpty() ? field.getName() : annotation.value();
+                Property property = new Property(name, field, ValueType.of(field));
+                if (annotation != null && annotation.docValue()) {
+                    docValueProperties.add(property);
+                } else {
+                    sourceProperties.put(name, property);
+                }
+            }
+        }
+        this.idField = id;
+        this.sourceFields = sourceProperties.keySet().toArray(new String[sourceProperties.size()]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> HitMapper<T> of(Class<T> type) {
+        HitMapper<?> mapper = MAPPERS.get(type);
+        if (mapper == null) {
+            HitMapper<?> created = new HitMapper<>(type);
+            mapper = MAPPERS.putIfAbsent(type, created);
+            if (mapper == null) {
+                mapper = created;
+            }
+        }
+        return (HitMapper<T>) mapper;
+    }
+
+    /**
+     * @description 只返回实体需要的字段, 没有source字段时完全不取_source
+     **/
+    public SearchRequestBuilder prepare(SearchRequestBuilder request) {
+        SearchRequest searchRequest = request.request();
+        if (searchRequest.source() == null) {
+            searchRequest.source(new SearchSourceBuilder());
+        }
+        prepare(searchRequest.source());
+        return request;
+    }
+
+    public SearchSourceBuilder prepare(SearchSourceBuilder source) {
+        if (sourceFields.length == 0) {
+            source.fetchSource(false);
+        } else {
+            source.fetchSource(sourceFields, null);
+        }
+        for (Property property : docValueProperties) {
+            source.docValueField(property.name);
+        }
+        return source;
+    }
+
+    public T map(SearchHit hit) {
+        T entity = newInstance();
+        try {
+            if (idField != null) {
+                idField.set(entity, hit.getId());
+            }
+            BytesReference source = hit.getSourceRef();
+            if (source != null && !sourceProperties.isEmpty()) {
+                readSource(source, entity);
+            }
+            for (Property property : docValueProperties) {
+                SearchHitField field = hit.getFields().get(property.name);
+                if (field != null && field.getValue() != null) {
+                    property.field.set(entity, property.valueType.convert(field.getValue()));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return entity;
+    }
+
+    public List<T> map(SearchHits hits) {
+        List<T> entities = new ArrayList<>(hits.getHits().length);
+        for (SearchHit hit : hits.getHits()) {
+            entities.add(map(hit));
+        }
+        return entities;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    private void readSource(BytesReference source, T entity) throws IllegalAccessException {
+        try (XContentParser parser = XContentFactory.xContent(source).createParser(NamedXContentRegistry.EMPTY, source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new IllegalArgumentException("source of " + type.getName() + " must be an object");
+            }
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                Property property = sourceProperties.get(parser.currentName());
+                token = parser.nextToken();
+                if (property == null || !token.isValue()) {
+                    // 不需要的字段、对象和数组直接跳过, 不构造中间对象
+                    parser.skipChildren();
+                    continue;
+                }
+                property.field.set(entity, property.valueType.read(parser));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to decode " + type.getName(), e);
+        }
+    }
+
+    private T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("failed to create " + type.getName(), e);
+        }
+    }
+
+    private static class Property {
+        final String name;
+        final Field field;
+        final ValueType valueType;
+
+        Property(String name, Field field, ValueType valueType) {
+            this.name = name;
+            this.field = field;
+            this.valueType = valueType;
+        }
+    }
+
+    /**
+     * @description 支持的字段类型, read从解析器读取_source里的值, convert转换doc values返回的值
+     **/
+    private enum ValueType {
+        STRING {
+            @Override
+            Object read(XContentParser parser) throws IOException {
+                return parser.text();
+            }
+
+            @Override
+            Object convert(Object value) {
+                return value.toString();
+            }
+        },
+        INT {
+            @Override
+            Object read(XContentParser parser) throws IOException {
+                return parser.intValue();
+            }
+
+            @Override
+            Object convert(Object value) {
+                return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+            }
+        },
+        LONG {
+            @Override
+            Object read(XContentParser parser) throws IOException {
+                return parser.longValue();
+            }
+
+            @Override
+            Object convert(Object value) {
+                return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+            }
+        },
+        FLOAT {
+            @Override
+            Object read(XContentParser parser) throws IOException {
+                return parser.floatValue();
+            }
+
+            @Override
+            Object convert(Object value) {
+                return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+            }
+        },
+        DOUBLE {
+            @Override
+            Object read(XContentParser parser) throws IOException {
+                return parser.doubleValue();
+            }
+
+            @Override
+            Object convert(Object value) {
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+            }
+        },
+        BOOLEAN {
+            @Override
+            Object read(XContentParser parser) throws IOException {
+                return parser.booleanValue();
+            }
+
+            @Override
+            Object convert(Object value) {
+                return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+            }
+        };
+
+        abstract Object read(XContentParser parser) throws IOException;
+
+        abstract Object convert(Object value);
+
+        static ValueType of(Field field) {
+            Class<?> type = field.getType();
+            if (type == String.class) {
+                return STRING;
+            } else if (type == int.class || type == Integer.class) {
+                return INT;
+            } else if (type == long.class || type == Long.class) {
+                return LONG;
+            } else if (type == float.class || type == Float.class) {
+                return FLOAT;
+            } else if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            throw new IllegalArgumentException("unsupported field type " + type.getName() + " of " + field);
+        }
+    }
+}
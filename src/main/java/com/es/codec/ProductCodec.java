@@ -0,0 +1,122 @@
+package com.es.codec;
+
+import com.entry.Product;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 13:40
+ * @Description: Product与json字节之间的编解码
+ * <p>
+ * 编码时直接把字段写进线程内复用的缓冲区, 不经过 JSON.toJSONString 产生的中间String,
+ * 解码时直接从_source字节流里按token读取字段, 不经过 getSourceAsString / getSourceAsMap。
+ * 为null的字段不输出, 和fastjson默认行为一致, 所以编码结果也可以直接作为局部更新的doc。
+ */
+public final class ProductCodec {
+    public static final String NAME = "name";
+    public static final String AUTHOR = "author";
+    public static final String VERSION = "version";
+
+    public static final XContentType CONTENT_TYPE = XContentType.JSON;
+
+    private static final ThreadLocal<BytesStreamOutput> BUFFER = new ThreadLocal<BytesStreamOutput>() {
+        @Override
+        protected BytesStreamOutput initialValue() {
+            return new BytesStreamOutput(256);
+        }
+    };
+
+    private ProductCodec() {
+    }
+
+    /**
+     * @description 编码成json字节, 返回的字节是独立的一份拷贝, 可以直接交给IndexRequest/UpdateRequest
+     **/
+    public static BytesReference encode(Product product) {
+        BytesStreamOutput out = BUFFER.get();
+        out.reset();
+        try {
+            XContentBuilder builder = new XContentBuilder(JsonXContent.jsonXContent, out);
+            builder.startObject();
+            field(builder, NAME, product.getName());
+            field(builder, AUTHOR, product.getAuthor());
+            field(builder, VERSION, product.getVersion());
+            builder.endObject();
+            builder.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to encode " + product, e);
+        }
+        // 缓冲区是复用的, 必须拷贝一份再交出去
+        return new BytesArray(BytesRef.deepCopyOf(out.bytes().toBytesRef()));
+    }
+
+    /**
+     * @description 从_source字节解码, 未知字段会被跳过
+     **/
+    public static Product decode(BytesReference source) {
+        if (source == null) {
+            return null;
+        }
+        Product product = new Product();
+        try (XContentParser parser = CONTENT_TYPE.xContent().createParser(NamedXContentRegistry.EMPTY, source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new IllegalArgumentException("product source must be an object");
+            }
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                String field = parser.currentName();
+                token = parser.nextToken();
+                if (token == XContentParser.Token.VALUE_NULL) {
+                    continue;
+                }
+                if (!token.isValue()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case NAME:
+                        product.setName(parser.text());
+                        break;
+                    case AUTHOR:
+                        product.setAuthor(parser.text());
+                        break;
+                    case VERSION:
+                        product.setVersion(parser.text());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to decode product", e);
+        }
+        return product;
+    }
+
+    public static Product decode(SearchHit hit) {
+        return decode(hit.getSourceRef());
+    }
+
+    public static Product decode(GetResponse response) {
+        return response.isExists() ? decode(response.getSourceAsBytesRef()) : null;
+    }
+
+    private static void field(XContentBuilder builder, String name, String value) throws IOException {
+        if (value != null) {
+            builder.field(name, value);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.es.fixture;
+
+import org.elasticsearch.client.Client;
+
+import java.io.IOException;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 23:40
+ * @Description: 测试数据, 一个fixture对应一个索引
+ * <p>
+ * {@link TestCluster} 第一次加载时调用 {@link #load(Client)} 写入数据并做成快照, 之后直接从快照恢复。
+ * 修改了写入的数据或mapping时要同时修改 {@link #version()}, 否则会继续使用旧的快照。
+ */
+public interface Fixture {
+
+    /**
+     * @description 写入的索引名
+     **/
+    String index();
+
+    /**
+     * @description 数据的版本, 只能包含小写字母、数字、点和横线, 和索引名一起组成快照名
+     **/
+    String version();
+
+    /**
+     * @description 创建索引并写入数据, 不需要refresh
+     **/
+    void load(Client client) throws IOException;
+}
@@ -0,0 +1,137 @@
+package com.es.fixture;
+
+import com.entry.Product;
+import com.es.codec.ProductCodec;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 23:45
+ * @Description: demo和压测使用的blog/mytest/bank索引, 结构和demo中的一致
+ * <p>
+ * 每个索引有 {@link #DOCS} 条文档, id为 0 ~ DOCS-1, 数据是固定的(随机数种子固定)。
+ */
+public final class Fixtures {
+    public static final String BLOG = "blog";
+    public static final String ARTICLE = "article";
+    public static final String MYTEST = "mytest";
+    public static final String PRODUCT = "product";
+    public static final String BANK = "bank";
+    public static final String ACCOUNT = "account";
+
+    public static final int DOCS = 5000;
+
+    private static final String[] NAMES = {"storm", "kafka", "hive", "flume", "sqoop", "spark", "flink", "hbase"};
+    private static final String[] AUTHORS = {"张学友", "陆小凤", "刘德华", "Apache", "LinkIn", "twitter"};
+    private static final String[] CONTENTS = {
+            "它提供了一个分布式多用户能力的全文搜索引擎，基于RESTful web接口",
+            "Elasticsearch是用Java开发的，并作为Apache许可条款下的开放源码发布，是当前流行的企业级搜索引擎",
+            "设计用于云计算中，能够达到实时搜索，稳定，可靠，快速，安装使用方便"};
+
+    private Fixtures() {
+    }
+
+    public static Product product(int i) {
+        return new Product(NAMES[i % NAMES.length] + " " + i, AUTHORS[i % AUTHORS.length], "1." + (i % 10) + "." + i);
+    }
+
+    /**
+     * @description mytest/product, 字段name/author/version
+     **/
+    public static Fixture mytest() {
+        return new BulkFixture(MYTEST) {
+            @Override
+            void add(Client client, BulkRequestBuilder bulk, int i, Random random) {
+                bulk.add(client.prepareIndex(MYTEST, PRODUCT, String.valueOf(i))
+                        .setSource(ProductCodec.encode(product(i)), ProductCodec.CONTENT_TYPE));
+            }
+        };
+    }
+
+    /**
+     * @description blog/article, 字段id/title/content
+     **/
+    public static Fixture blog() {
+        return new BulkFixture(BLOG) {
+            @Override
+            void add(Client client, BulkRequestBuilder bulk, int i, Random random) throws IOException {
+                String id = String.valueOf(i);
+                bulk.add(client.prepareIndex(BLOG, ARTICLE, id).setSource(XContentFactory.jsonBuilder().startObject()
+                        .field("id", id)
+                        .field("title", "基于Lucene的搜索服务器 " + i)
+                        .field("content", CONTENTS[i % CONTENTS.length])
+                        .endObject()));
+            }
+        };
+    }
+
+    /**
+     * @description bank/account, 字段firstname/gender/age/balance
+     **/
+    public static Fixture bank() {
+        return new BulkFixture(BANK) {
+            @Override
+            void add(Client client, BulkRequestBuilder bulk, int i, Random random) throws IOException {
+                bulk.add(client.prepareIndex(BANK, ACCOUNT, String.valueOf(i)).setSource(XContentFactory.jsonBuilder().startObject()
+                        .field("firstname", NAMES[i % NAMES.length])
+                        .field("gender", random.nextBoolean() ? "F" : "M")
+                        .field("age", 20 + random.nextInt(40))
+                        .field("balance", random.nextInt(50000))
+                        .endObject()));
+            }
+        };
+    }
+
+    public static List<Fixture> all() {
+        return Arrays.asList(mytest(), blog(), bank());
+    }
+
+    /**
+     * 一次bulk写入DOCS条文档
+     */
+    private abstract static class BulkFixture implements Fixture {
+        private final String index;
+
+        BulkFixture(String index) {
+            this.index = index;
+        }
+
+        @Override
+        public String index() {
+            return index;
+        }
+
+        @Override
+        public String version() {
+            return "1-" + DOCS;
+        }
+
+        @Override
+        public void load(Client client) throws IOException {
+            Random random = new Random(42);
+            BulkRequestBuilder bulk = client.prepareBulk();
+            for (int i = 0; i < DOCS; i++) {
+                add(client, bulk, i, random);
+            }
+            BulkResponse response = bulk.get();
+            if (response.hasFailures()) {
+                throw new IllegalStateException(response.buildFailureMessage());
+            }
+        }
+
+        abstract void add(Client client, BulkRequestBuilder bulk, int i, Random random) throws IOException;
+
+        @Override
+        public String toString() {
+            return index;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.es.fixture;
+
+import com.es.client.EsClientFactory;
+import com.es.client.LocalNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotResponse;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.snapshots.SnapshotInfo;
+import org.elasticsearch.snapshots.SnapshotState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 23:50
+ * @Description: 进程内共享的测试集群, 测试数据从快照恢复
+ * <p>
+ * 第一次调用 {@link #get()} 时启动一个 {@link LocalNode}, 之后同一个JVM中的所有测试类和benchmark共用它,
+ * JVM退出时关闭。节点把 {@link #FIXTURES_DIR_PROPERTY} 指定的目录(默认 target/es-fixtures)注册成fs快照仓库:
+ * fixture第一次加载时逐条写入, 合并成一个segment后做成快照, 以后的运行直接恢复快照, 只需要复制文件,
+ * 不再重新建索引。CI可以缓存这个目录, fixture的 {@link Fixture#version()} 变化时会自动重新生成。
+ * <p>
+ * 生成快照时同一个目录不要被多个进程同时使用。
+ * <pre>
+ * TestCluster cluster = TestCluster.get();
+ * cluster.load(Fixtures.blog(), Fixtures.bank());
+ * TransportClient client = cluster.client();
+ * </pre>
+ */
+public final class TestCluster {
+    private static final Logger LOGGER = LogManager.getLogger(TestCluster.class);
+    /**
+     * 快照仓库目录, 可以通过 -Des.fixtures.dir 修改
+     */
+    public static final String FIXTURES_DIR_PROPERTY = "es.fixtures.dir";
+    /**
+     * 为true时 {@link #connect(Fixture...)} 使用本地集群, 否则连接 -Des.hosts 指定的集群
+     */
+    public static final String LOCAL_PROPERTY = "es.local";
+    private static final String DEFAULT_FIXTURES_DIR = "target/es-fixtures";
+    static final String REPOSITORY = "fixtures";
+
+    private static TestCluster instance;
+
+    private final LocalNode node;
+    private final TransportClient client;
+    private final Path repository;
+    private final Set<String> loaded = new HashSet<>();
+
+    private TestCluster(LocalNode node, Path repository) {
+        this.node = node;
+        this.repository = repository;
+        this.client = EsClientFactory.getClient(node.clusterConfig());
+        client.admin().cluster().preparePutRepository(REPOSITORY).setType("fs")
+                .setSettings(Settings.builder().put("location", repository.toString()).put("compress", false))
+                .get();
+    }
+
+    /**
+     * @description 获取共享的集群, 第一次调用时启动节点
+     **/
+    public static synchronized TestCluster get() throws IOException {
+        if (instance == null) {
+            Path repository = Paths.get(System.getProperty(FIXTURES_DIR_PROPERTY, DEFAULT_FIXTURES_DIR)).toAbsolutePath();
+            Files.createDirectories(repository);
+            final LocalNode node = LocalNode.start(Files.createTempDirectory("es-test-cluster"), true,
+                    Settings.builder().put("path.repo", repository.toString()).build());
+            try {
+                instance = new TestCluster(node, repository);
+            } catch (RuntimeException e) {
+                node.close();
+                throw e;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread("es-test-cluster-shutdown") {
+                @Override
+                public void run() {
+                    try {
+                        node.close();
+                    } catch (IOException e) {
+                        LOGGER.warn("failed to close test cluster", e);
+                    }
+                }
+            });
+        }
+        return instance;
+    }
+
+    /**
+     * @description demo使用的client: 设置了 -Des.local=true 时使用共享的本地集群并加载fixtures, 否则连接默认集群
+     **/
+    public static TransportClient connect(Fixture... fixtures) {
+        if (!Boolean.getBoolean(LOCAL_PROPERTY)) {
+            return EsClientFactory.getClient();
+        }
+        try {
+            TestCluster cluster = get();
+            cluster.load(fixtures);
+            return cluster.client();
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to start test cluster", e);
+        }
+    }
+
+    /**
+     * @description 连接本地节点的TransportClient, 和线上的调用路径一致, 不要close
+     **/
+    public TransportClient client() {
+        return client;
+    }
+
+    public LocalNode node() {
+        return node;
+    }
+
+    public Path getRepository() {
+        return repository;
+    }
+
+    /**
+     * @description 加载fixture, 已经加载过的跳过
+     **/
+    public void load(Fixture... fixtures) throws IOException {
+        load(Arrays.asList(fixtures));
+    }
+
+    public synchronized void load(Collection<? extends Fixture> fixtures) throws IOException {
+        for (Fixture fixture : fixtures) {
+            if (loaded.add(fixture.index())) {
+                try {
+                    restore(fixture);
+                } catch (IOException | RuntimeException e) {
+                    loaded.remove(fixture.index());
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @description 删除索引后重新从快照恢复, 用于修改过fixture数据的测试
+     **/
+    public synchronized void reset(Fixture... fixtures) throws IOException {
+        for (Fixture fixture : fixtures) {
+            loaded.remove(fixture.index());
+        }
+        load(fixtures);
+    }
+
+    private void restore(Fixture fixture) throws IOException {
+        String index = fixture.index();
+        String snapshot = snapshotName(fixture);
+        long start = System.nanoTime();
+        deleteIfExists(index);
+        if (!hasSnapshot(snapshot)) {
+            build(fixture, snapshot);
+            LOGGER.info("built fixture [{}] in {}ms", index, (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+        RestoreSnapshotResponse response = client.admin().cluster().prepareRestoreSnapshot(REPOSITORY, snapshot)
+                .setIndices(index)
+                .setIncludeAliases(false)
+                .setWaitForCompletion(true)
+                .get();
+        if (response.getRestoreInfo() == null || response.getRestoreInfo().failedShards() > 0) {
+            throw new IllegalStateException("failed to restore fixture [" + index + "] from snapshot [" + snapshot
+                    + "], delete " + repository + " to rebuild it");
+        }
+        LOGGER.info("restored fixture [{}] from snapshot [{}] in {}ms", index, snapshot, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void build(Fixture fixture, String snapshot) throws IOException {
+        String index = fixture.index();
+        fixture.load(client);
+        // 单节点上没有副本才能变绿; 合并成一个segment, 快照更小, 恢复更快
+        client.admin().indices().prepareUpdateSettings(index)
+                .setSettings(Settings.builder().put("index.number_of_replicas", 0))
+                .get();
+        client.admin().indices().prepareRefresh(index).get();
+        client.admin().indices().prepareForceMerge(index).setMaxNumSegments(1).setFlush(true).get();
+        try {
+            CreateSnapshotResponse response = client.admin().cluster().prepareCreateSnapshot(REPOSITORY, snapshot)
+                    .setIndices(index)
+                    .setIncludeGlobalState(false)
+                    .setWaitForCompletion(true)
+                    .get();
+            SnapshotInfo info = response.getSnapshotInfo();
+            if (info == null || info.state() != SnapshotState.SUCCESS) {
+                LOGGER.warn("snapshot of fixture [{}] did not succeed: {}", index, info == null ? null : info.reason());
+            }
+        } catch (RuntimeException e) {
+            // 快照失败不影响本次使用, 下次运行会重新生成
+            LOGGER.warn("failed to snapshot fixture [{}]", index, e);
+        }
+    }
+
+    /**
+     * @description 快照是否可用, 上次没有成功的快照会被删除, 以便重新生成
+     **/
+    private boolean hasSnapshot(String snapshot) {
+        List<SnapshotInfo> snapshots = client.admin().cluster().prepareGetSnapshots(REPOSITORY)
+                .setSnapshots(snapshot)
+                .setIgnoreUnavailable(true)
+                .get().getSnapshots();
+        if (snapshots.isEmpty()) {
+            return false;
+        }
+        if (snapshots.get(0).state() == SnapshotState.SUCCESS) {
+            return true;
+        }
+        LOGGER.info("deleting incomplete snapshot [{}] in state [{}]", snapshot, snapshots.get(0).state());
+        client.admin().cluster().prepareDeleteSnapshot(REPOSITORY, snapshot).get();
+        return false;
+    }
+
+    private void deleteIfExists(String index) {
+        if (client.admin().indices().prepareExists(index).get().isExists()) {
+            client.admin().indices().prepareDelete(index).get();
+        }
+    }
+
+    static String snapshotName(Fixture fixture) {
+        return fixture.index() + "-" + fixture.version();
+    }
+}
@@ -0,0 +1,179 @@
+package com.es.get;
+
+import com.es.cache.DocKey;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 18:00
+ * @Description: 把并发的单条get合并成multi get发送
+ * <p>
+ * 第一条请求进来后等待一个很短的窗口(window), 窗口内的其他请求一起放进同一个MultiGetRequest;
+ * 攒够maxBatchSize条时不再等待, 立即发送。同一个批次里重复的id只查一次。
+ * 每个调用方拿到自己的future(重复的id也是各自的future, 一个调用方cancel不影响其他调用方),
+ * 文档不存在时future正常完成, 返回的 GetResponse.isExists() 为false。
+ * <p>
+ * future在transport线程上完成, 后续的回调不要做耗时操作。
+ */
+public class GetBatcher implements Closeable {
+    public static final TimeValue DEFAULT_WINDOW = TimeValue.timeValueMillis(2);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    private static final Function<GetResponse, GetResponse> SAME = new Function<GetResponse, GetResponse>() {
+        @Override
+        public GetResponse apply(GetResponse response) {
+            return response;
+        }
+    };
+
+    private final Client client;
+    private final TimeValue window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private Map<DocKey, CompletableFuture<GetResponse>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public GetBatcher(Client client) {
+        this(client, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public GetBatcher(Client client, TimeValue window, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be >= 1 but was " + maxBatchSize);
+        }
+        this.client = client;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("get-batcher"));
+    }
+
+    /**
+     * @description 异步读取一条文档, 会和窗口内的其他请求合并发送
+     **/
+    public CompletableFuture<GetResponse> get(String index, String type, String id) {
+        DocKey key = new DocKey(index, type, id);
+        Map<DocKey, CompletableFuture<GetResponse>> batch = null;
+        CompletableFuture<GetResponse> future;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("get batcher is closed");
+            }
+            future = pending.get(key);
+            if (future != null) {
+                return future.thenApply(SAME);
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, window.millis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return future.thenApply(SAME);
+    }
+
+    /**
+     * @description 立即发送当前攒着的请求
+     **/
+    public void flush() {
+        Map<DocKey, CompletableFuture<GetResponse>> batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * @description 发送剩余的请求并停止定时器
+     **/
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private Map<DocKey, CompletableFuture<GetResponse>> takePending() {
+        Map<DocKey, CompletableFuture<GetResponse>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<DocKey, CompletableFuture<GetResponse>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        MultiGetRequest request = new MultiGetRequest();
+        final List<CompletableFuture<GetResponse>> futures = new ArrayList<>(batch.size());
+        for (Map.Entry<DocKey, CompletableFuture<GetResponse>> entry : batch.entrySet()) {
+            DocKey key = entry.getKey();
+            request.add(key.getIndex(), key.getType(), key.getId());
+            futures.add(entry.getValue());
+        }
+        try {
+            client.multiGet(request, new ActionListener<MultiGetResponse>() {
+                @Override
+                public void onResponse(MultiGetResponse response) {
+                    // 返回结果和请求的顺序一致
+                    MultiGetItemResponse[] items = response.getResponses();
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i].isFailed()) {
+                            futures.get(i).completeExceptionally(items[i].getFailure().getFailure());
+                        } else {
+                            futures.get(i).complete(items[i].getResponse());
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    completeExceptionally(futures, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // client已关闭、没有可用节点等同步抛出的异常, 不交给future的话在定时线程上会被吞掉, future永远不会完成
+            completeExceptionally(futures, e);
+        }
+    }
+
+    private static void completeExceptionally(List<CompletableFuture<GetResponse>> futures, Exception e) {
+        for (CompletableFuture<GetResponse> future : futures) {
+            future.completeExceptionally(e);
+        }
+    }
+}
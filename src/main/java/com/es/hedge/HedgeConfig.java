@@ -0,0 +1,58 @@
+package com.es.hedge;
+
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 21:40
+ * @Description: 对冲请求的参数
+ */
+@Value
+@Builder
+public class HedgeConfig {
+    /**
+     * 请求超过最近延迟的这个百分位还没返回时, 发出对冲请求
+     */
+    @Builder.Default
+    private double percentile = 95;
+    /**
+     * 样本不够时使用的延迟
+     */
+    @Builder.Default
+    private TimeValue initialDelay = TimeValue.timeValueMillis(50);
+    @Builder.Default
+    private TimeValue minDelay = TimeValue.timeValueMillis(1);
+    @Builder.Default
+    private TimeValue maxDelay = TimeValue.timeValueSeconds(1);
+    /**
+     * 每个统计窗口至少需要的样本数, 不够时延续到下一个窗口
+     */
+    @Builder.Default
+    private int minSamples = 100;
+    /**
+     * 统计窗口, 每个窗口结束时重新计算延迟
+     */
+    @Builder.Default
+    private TimeValue window = TimeValue.timeValueSeconds(10);
+    /**
+     * 对冲请求最多占原始请求的比例, 集群整体变慢时不会把负载翻倍
+     */
+    @Builder.Default
+    private double maxHedgeRatio = 0.1;
+    /**
+     * 对冲额度最多累积的个数
+     */
+    @Builder.Default
+    private int maxBurst = 10;
+    /**
+     * 先返回的一方胜出后是否取消另一方(只对search有效, get不支持取消)
+     */
+    @Builder.Default
+    private boolean cancelLoser = true;
+
+    public static HedgeConfig defaults() {
+        return HedgeConfig.builder().build();
+    }
+}
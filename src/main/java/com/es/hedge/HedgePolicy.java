@@ -0,0 +1,90 @@
+package com.es.hedge;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 21:50
+ * @Description: 单种操作的对冲延迟和额度
+ * <p>
+ * 延迟取上一个统计窗口中请求延迟的百分位, 限制在[minDelay, maxDelay]之间; 窗口内样本不够时延续到下一个窗口,
+ * 一直不够就保持initialDelay。额度是令牌桶: 每个原始请求增加maxHedgeRatio个令牌, 每次对冲消耗一个。
+ */
+class HedgePolicy {
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final HedgeConfig config;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram window = new Histogram(SIGNIFICANT_DIGITS);
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long windowNanos;
+
+    private volatile long delayNanos;
+    private volatile long nextRoll;
+    private double tokens;
+
+    HedgePolicy(HedgeConfig config) {
+        this(config, System.nanoTime());
+    }
+
+    HedgePolicy(HedgeConfig config, long now) {
+        this.config = config;
+        this.minDelayNanos = config.getMinDelay().nanos();
+        this.maxDelayNanos = config.getMaxDelay().nanos();
+        this.windowNanos = config.getWindow().nanos();
+        this.delayNanos = clamp(config.getInitialDelay().nanos());
+        this.nextRoll = now + windowNanos;
+    }
+
+    /**
+     * @description 当前的对冲延迟
+     **/
+    long delayNanos(long now) {
+        if (now - nextRoll >= 0) {
+            roll(now);
+        }
+        return delayNanos;
+    }
+
+    void record(long latencyNanos) {
+        recorder.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    /**
+     * @description 每个原始请求调用一次, 增加对冲额度
+     **/
+    synchronized void onRequest() {
+        tokens = Math.min(config.getMaxBurst(), tokens + config.getMaxHedgeRatio());
+    }
+
+    /**
+     * @description 尝试消耗一次对冲额度
+     **/
+    synchronized boolean tryAcquire() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private synchronized void roll(long now) {
+        if (now - nextRoll < 0) {
+            return;
+        }
+        window.add(recorder.getIntervalHistogram());
+        if (window.getTotalCount() >= config.getMinSamples()) {
+            delayNanos = clamp(TimeUnit.MICROSECONDS.toNanos(window.getValueAtPercentile(config.getPercentile())));
+            window.reset();
+        }
+        nextRoll = now + windowNanos;
+    }
+
+    private long clamp(long nanos) {
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, nanos));
+    }
+}
@@ -0,0 +1,361 @@
+package com.es.hedge;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksResponse;
+import org.elasticsearch.action.get.GetAction;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.FilterClient;
+import org.elasticsearch.cluster.routing.Murmur3HashFunction;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.tasks.TaskId;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 22:00
+ * @Description: 对只读的search和get发送对冲请求的client包装
+ * <p>
+ * 请求超过最近延迟的百分位(见 {@link HedgeConfig#getPercentile()})还没返回时, 用另一个preference再发一次,
+ * 哪个先返回用哪个, 另一个search通过取消任务停止。两次请求都失败才返回失败。
+ * 对冲请求的数量受 {@link HedgeConfig#getMaxHedgeRatio()} 限制, 集群整体变慢时不会把负载翻倍。
+ * <p>
+ * 自定义preference在es中按 murmur3(preference) 对分片副本数取模选择副本, 两次请求的preference按哈希差
+ * 模6余1或5来选, 分片有2个或3个副本时保证落在不同的副本上, 一个节点卡顿(GC、merge)时对冲请求可以绕开它。
+ * <p>
+ * 只处理没有指定preference的请求; 带scroll的search和refresh的get不对冲, 原样发送。
+ */
+public class HedgedClient extends FilterClient {
+    private static final Logger LOGGER = LogManager.getLogger(HedgedClient.class);
+    private static final String PREFERENCE_PREFIX = "hedge_";
+    /**
+     * SearchRequest没有设置maxConcurrentShardRequests时getter返回的值
+     */
+    private static final int DEFAULT_MAX_CONCURRENT_SHARD_REQUESTS = new SearchRequest().getMaxConcurrentShardRequests();
+
+    private final HedgeConfig config;
+    private final HedgePolicy searchPolicy;
+    private final HedgePolicy getPolicy;
+    private final ScheduledThreadPoolExecutor scheduler;
+    /**
+     * search请求挂在一个虚拟的父任务下, 取消时按父任务id找到它
+     */
+    private final String taskNode = "hedge_" + UUIDs.randomBase64UUID();
+    private final AtomicLong taskIds = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public HedgedClient(Client in) {
+        this(in, HedgeConfig.defaults());
+    }
+
+    public HedgedClient(Client in, HedgeConfig config) {
+        super(in);
+        this.config = config;
+        this.searchPolicy = new HedgePolicy(config);
+        this.getPolicy = new HedgePolicy(config);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, EsExecutors.daemonThreadFactory("hedged-client"));
+        // 大部分请求在对冲之前就返回了, 取消的定时任务要马上移除
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @description 经过对冲处理的请求数
+     **/
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @description 发出的对冲请求数
+     **/
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    /**
+     * @description 对冲请求先返回的次数
+     **/
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @description 到了对冲时间但额度用完的次数
+     **/
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    public long getSearchDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(searchPolicy.delayNanos(System.nanoTime()));
+    }
+
+    public long getGetDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPolicy.delayNanos(System.nanoTime()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+    void doExecute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+        if (action == SearchAction.INSTANCE && hedgeable((SearchRequest) request)) {
+            new Race<>(action, request, listener, searchPolicy, new Copier<Request>() {
+                @Override
+                public Request copy(Request request, String preference) {
+                    return (Request) copySearch((SearchRequest) request, preference);
+                }
+            }, config.isCancelLoser()).start();
+        } else if (action == GetAction.INSTANCE && hedgeable((GetRequest) request)) {
+            new Race<>(action, request, listener, getPolicy, new Copier<Request>() {
+                @Override
+                public Request copy(Request request, String preference) {
+                    return (Request) copyGet((GetRequest) request, preference);
+                }
+            }, false).start();
+        } else {
+            super.doExecute(action, request, listener);
+        }
+    }
+
+    /**
+     * @description 只停止对冲用的定时线程, 不关闭被包装的client, 它通常是 EsClientFactory 共享的连接
+     **/
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    boolean isSchedulerShutdown() {
+        return scheduler.isShutdown();
+    }
+
+    static boolean hedgeable(SearchRequest request) {
+        return request.preference() == null && request.scroll() == null;
+    }
+
+    static boolean hedgeable(GetRequest request) {
+        return request.preference() == null && !request.refresh();
+    }
+
+    /**
+     * @description 生成两个preference, 保证分片有2个或3个副本时选中不同的副本
+     **/
+    static String[] preferencePair(Random random) {
+        String first = PREFERENCE_PREFIX + Long.toHexString(random.nextLong());
+        long firstHash = Murmur3HashFunction.hash(first);
+        for (int i = 0; ; i++) {
+            String second = first + "_" + i;
+            long distance = Math.floorMod(Murmur3HashFunction.hash(second) - firstHash, 6L);
+            if (distance == 1 || distance == 5) {
+                return new String[]{first, second};
+            }
+        }
+    }
+
+    static SearchRequest copySearch(SearchRequest request, String preference) {
+        SearchRequest copy = new SearchRequest(request.indices(), request.source())
+                .types(request.types())
+                .routing(request.routing())
+                .preference(preference)
+                .searchType(request.searchType())
+                .requestCache(request.requestCache())
+                .indicesOptions(request.indicesOptions());
+        copy.setBatchedReduceSize(request.getBatchedReduceSize());
+        copy.setPreFilterShardSize(request.getPreFilterShardSize());
+        // 没设置时getter返回256, 照抄会覆盖协调节点按节点数算出的默认值, 所以只复制显式设置的值
+        if (request.getMaxConcurrentShardRequests() != DEFAULT_MAX_CONCURRENT_SHARD_REQUESTS) {
+            copy.setMaxConcurrentShardRequests(request.getMaxConcurrentShardRequests());
+        }
+        return copy;
+    }
+
+    static GetRequest copyGet(GetRequest request, String preference) {
+        return new GetRequest(request.index(), request.type(), request.id())
+                .routing(request.routing())
+                .parent(request.parent())
+                .preference(preference)
+                .storedFields(request.storedFields())
+                .fetchSourceContext(request.fetchSourceContext())
+                .realtime(request.realtime())
+                .version(request.version())
+                .versionType(request.versionType());
+    }
+
+    private interface Copier<Request> {
+        Request copy(Request request, String preference);
+    }
+
+    /**
+     * 一次原始请求和它的对冲请求, 先成功的一方的结果交给listener
+     */
+    private class Race<Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>> implements Runnable {
+        private final Action<Request, Response, RequestBuilder> action;
+        private final Request primary;
+        private final ActionListener<Response> listener;
+        private final HedgePolicy policy;
+        private final Copier<Request> copier;
+        private final boolean cancellable;
+        private final String[] preferences;
+        private final long start = System.nanoTime();
+
+        private boolean done;
+        private int outstanding;
+        private ScheduledFuture<?> timer;
+        private TaskId primaryTask;
+        private TaskId backupTask;
+
+        Race(Action<Request, Response, RequestBuilder> action, Request primary, ActionListener<Response> listener,
+             HedgePolicy policy, Copier<Request> copier, boolean cancellable) {
+            this.action = action;
+            this.primary = primary;
+            this.listener = listener;
+            this.policy = policy;
+            this.copier = copier;
+            this.cancellable = cancellable;
+            this.preferences = preferencePair(ThreadLocalRandom.current());
+        }
+
+        void start() {
+            requests.incrementAndGet();
+            policy.onRequest();
+            Request request = copier.copy(primary, preferences[0]);
+            synchronized (this) {
+                outstanding = 1;
+                if (cancellable) {
+                    primaryTask = nextTask();
+                    request.setParentTask(primaryTask);
+                }
+            }
+            send(request, false);
+            long delay = policy.delayNanos(start);
+            synchronized (this) {
+                if (!done) {
+                    timer = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        /**
+         * @description 到了对冲时间, 原始请求还没返回
+         **/
+        @Override
+        public void run() {
+            Request backup;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (!policy.tryAcquire()) {
+                    budgetExhausted.incrementAndGet();
+                    return;
+                }
+                backup = copier.copy(primary, preferences[1]);
+                if (cancellable) {
+                    backupTask = nextTask();
+                    backup.setParentTask(backupTask);
+                }
+                outstanding++;
+            }
+            hedged.incrementAndGet();
+            send(backup, true);
+        }
+
+        private void send(Request request, final boolean backup) {
+            try {
+                HedgedClient.super.doExecute(action, request, new ActionListener<Response>() {
+                    @Override
+                    public void onResponse(Response response) {
+                        succeeded(response, backup);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        failed(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                failed(e);
+            }
+        }
+
+        private void succeeded(Response response, boolean backup) {
+            TaskId loser;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                loser = outstanding > 1 ? (backup ? primaryTask : backupTask) : null;
+            }
+            policy.record(System.nanoTime() - start);
+            if (backup) {
+                hedgeWins.incrementAndGet();
+            }
+            if (loser != null) {
+                cancel(loser);
+            }
+            listener.onResponse(response);
+        }
+
+        private void failed(Exception e) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                // 对冲请求还在进行时等它的结果
+                if (--outstanding > 0) {
+                    LOGGER.debug("hedged request failed, waiting for the other copy", e);
+                    return;
+                }
+                done = true;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+            listener.onFailure(e);
+        }
+
+        private TaskId nextTask() {
+            return new TaskId(taskNode, taskIds.incrementAndGet());
+        }
+    }
+
+    private void cancel(final TaskId parent) {
+        in().admin().cluster().prepareCancelTasks().setParentTaskId(parent).execute(new ActionListener<CancelTasksResponse>() {
+            @Override
+            public void onResponse(CancelTasksResponse response) {
+                LOGGER.trace("cancelled {} tasks of {}", response.getTasks().size(), parent);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // 取消失败只是多占用一点集群资源
+                LOGGER.debug("failed to cancel hedged request {}", parent, e);
+            }
+        });
+    }
+}
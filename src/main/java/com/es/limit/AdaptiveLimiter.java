@@ -0,0 +1,192 @@
+package com.es.limit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.util.ArrayDeque;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 16:40
+ * @Description: 按AIMD调整并发上限的限流器
+ * <p>
+ * 请求正常返回并且延迟在目标之内时, 如果并发用到了上限的一半以上, 上限每次增加 1/limit, 相当于每一轮增加1;
+ * 请求被集群拒绝(429)、超时或者超过延迟目标时, 上限乘以backoffRatio。
+ * 一次过载之前已经发出的请求再报过载不会重复下调, 避免一波拒绝把上限直接压到最低。
+ * <p>
+ * 超过上限的请求进入有界队列, 有请求完成时按顺序放行; 队列满了抛出 {@link EsRejectedExecutionException},
+ * 和集群线程池满时的异常一致, 调用方可以用同一套逻辑处理。
+ */
+public class AdaptiveLimiter implements AdaptiveLimiterMXBean {
+    private static final Logger LOGGER = LogManager.getLogger(AdaptiveLimiter.class);
+
+    /**
+     * 拿到许可之后执行的任务, 完成时必须调用 {@link #release}
+     */
+    public interface Task {
+        void run(Permit permit);
+    }
+
+    /**
+     * 一次执行许可, 记录发出时的序号和时间
+     */
+    public static final class Permit {
+        private final long sequence;
+        private final long startNanos;
+
+        private Permit(long sequence, long startNanos) {
+            this.sequence = sequence;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final String operation;
+    private final LimiterConfig config;
+    private final long latencyTargetNanos;
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long sequence;
+    private long lastDecreaseSequence = -1;
+    private long shed;
+    private long decreases;
+    /**
+     * 有线程正在放行排队的任务
+     */
+    private boolean draining;
+
+    public AdaptiveLimiter(String operation, LimiterConfig config) {
+        if (config.getMinLimit() < 1 || config.getMinLimit() > config.getMaxLimit()) {
+            throw new IllegalArgumentException("invalid limits [" + config.getMinLimit() + ", " + config.getMaxLimit() + "]");
+        }
+        this.operation = operation;
+        this.config = config;
+        this.latencyTargetNanos = config.getLatencyTarget().nanos();
+        this.limit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), config.getInitialLimit()));
+    }
+
+    /**
+     * @description 未达到上限时在当前线程执行, 否则排队, 队列满了抛出EsRejectedExecutionException
+     **/
+    public void submit(Task task) {
+        Permit permit;
+        synchronized (this) {
+            if (inFlight >= (int) limit || !queue.isEmpty()) {
+                if (queue.size() >= config.getMaxQueueSize()) {
+                    shed++;
+                    throw new EsRejectedExecutionException("[" + operation + "] concurrency limit [" + (int) limit
+                            + "] reached and queue of [" + queue.size() + "] is full");
+                }
+                queue.add(task);
+                return;
+            }
+            permit = acquire();
+        }
+        task.run(permit);
+    }
+
+    /**
+     * @param overloaded 请求被拒绝或者超时, 其他失败传false
+     */
+    public void release(Permit permit, boolean overloaded) {
+        long latency = System.nanoTime() - permit.startNanos;
+        synchronized (this) {
+            inFlight--;
+            if (overloaded || latency > latencyTargetNanos) {
+                decrease(permit);
+            } else if ((inFlight + 1) * 2 >= limit) {
+                // 并发用到一半以上才说明上限可能不够, 流量很小时上限不会无限增长
+                limit = Math.min(config.getMaxLimit(), limit + 1 / limit);
+            }
+            if (draining) {
+                // 正在放行排队任务的线程会看到空出来的许可, 可能就是当前线程: 任务同步失败时会在run里调用release
+                return;
+            }
+            draining = true;
+        }
+        drainQueue();
+    }
+
+    /**
+     * @description 在当前线程依次放行排队的任务, 用循环而不是递归, 任务同步失败时栈深度不会随队列长度增长
+     **/
+    private void drainQueue() {
+        boolean drained = false;
+        try {
+            while (true) {
+                Task task;
+                Permit permit;
+                synchronized (this) {
+                    if (inFlight >= (int) limit || queue.isEmpty()) {
+                        draining = false;
+                        drained = true;
+                        return;
+                    }
+                    task = queue.poll();
+                    permit = acquire();
+                }
+                task.run(permit);
+            }
+        } finally {
+            if (!drained) {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    private Permit acquire() {
+        inFlight++;
+        return new Permit(sequence++, System.nanoTime());
+    }
+
+    private void decrease(Permit permit) {
+        if (permit.sequence <= lastDecreaseSequence) {
+            return;
+        }
+        double previous = limit;
+        limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+        lastDecreaseSequence = sequence - 1;
+        decreases++;
+        LOGGER.debug("[{}] overloaded, concurrency limit {} -> {}", operation, (int) previous, (int) limit);
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized long getShed() {
+        return shed;
+    }
+
+    @Override
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return operation + " limit=" + (int) limit + " inFlight=" + inFlight + " queued=" + queue.size()
+                + " shed=" + shed + " decreases=" + decreases;
+    }
+}
@@ -0,0 +1,30 @@
+package com.es.limit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 16:35
+ * @Description: 单个操作的并发限制状态, 通过JMX暴露
+ */
+public interface AdaptiveLimiterMXBean {
+
+    String getOperation();
+
+    /**
+     * @description 当前允许的并发数
+     **/
+    int getLimit();
+
+    int getInFlight();
+
+    int getQueued();
+
+    /**
+     * @description 队列满了被直接拒绝的请求数
+     **/
+    long getShed();
+
+    /**
+     * @description 因为过载下调上限的次数
+     **/
+    long getDecreases();
+}
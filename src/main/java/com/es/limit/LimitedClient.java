@@ -0,0 +1,180 @@
+package com.es.limit;
+
+import com.es.metrics.InstrumentedClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.FilterClient;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.transport.ReceiveTimeoutTransportException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 17:00
+ * @Description: 按操作类型限制在途请求数的client包装
+ * <p>
+ * 每种操作(index/get/mget/update/delete/bulk/search/aggregation, 和 {@link InstrumentedClient} 的分类一致)
+ * 各有一个 {@link AdaptiveLimiter}, 上限根据集群的拒绝和延迟自动调整, 并注册到JMX
+ * (ObjectName为 com.es:type=ConcurrencyLimit,operation=xxx)。
+ * 被限流拒绝的请求通过listener返回EsRejectedExecutionException, 同步调用时由get()抛出。admin()下的请求不限制。
+ */
+public class LimitedClient extends FilterClient {
+    private static final Logger LOGGER = LogManager.getLogger(LimitedClient.class);
+
+    private final LimiterConfig defaultConfig;
+    private final Map<String, LimiterConfig> configs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public LimitedClient(Client in) {
+        this(in, LimiterConfig.defaults());
+    }
+
+    public LimitedClient(Client in, LimiterConfig defaultConfig) {
+        super(in);
+        this.defaultConfig = defaultConfig;
+    }
+
+    /**
+     * @description 单独设置某种操作的参数, 需要在这种操作的第一个请求之前调用
+     **/
+    public LimitedClient configure(String operation, LimiterConfig config) {
+        configs.put(operation, config);
+        return this;
+    }
+
+    public AdaptiveLimiter limiter(String operation) {
+        AdaptiveLimiter existing = limiters.get(operation);
+        if (existing != null) {
+            return existing;
+        }
+        LimiterConfig config = configs.get(operation);
+        AdaptiveLimiter created = new AdaptiveLimiter(operation, config == null ? defaultConfig : config);
+        existing = limiters.putIfAbsent(operation, created);
+        if (existing != null) {
+            return existing;
+        }
+        register(created);
+        return created;
+    }
+
+    public Collection<AdaptiveLimiter> limiters() {
+        return Collections.unmodifiableCollection(limiters.values());
+    }
+
+    @Override
+    protected <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+    void doExecute(final Action<Request, Response, RequestBuilder> action, final Request request,
+                   final ActionListener<Response> listener) {
+        final AdaptiveLimiter limiter = limiter(InstrumentedClient.operation(action, request));
+        try {
+            limiter.submit(new AdaptiveLimiter.Task() {
+                @Override
+                public void run(AdaptiveLimiter.Permit permit) {
+                    dispatch(limiter, permit, action, request, listener);
+                }
+            });
+        } catch (RuntimeException e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+    void dispatch(final AdaptiveLimiter limiter, final AdaptiveLimiter.Permit permit,
+                  Action<Request, Response, RequestBuilder> action, Request request, final ActionListener<Response> listener) {
+        try {
+            super.doExecute(action, request, new ActionListener<Response>() {
+                @Override
+                public void onResponse(Response response) {
+                    limiter.release(permit, hasRejections(response));
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    limiter.release(permit, isOverload(e));
+                    listener.onFailure(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 排队的请求在其他请求的回调线程上发出, 异常只能交给listener
+            limiter.release(permit, false);
+            listener.onFailure(e);
+        }
+    }
+
+    /**
+     * @description 只注销JMX, 不关闭被包装的client, 它通常是 EsClientFactory 共享的连接
+     **/
+    @Override
+    public void close() {
+        for (AdaptiveLimiter limiter : limiters.values()) {
+            try {
+                mBeanServer.unregisterMBean(objectName(limiter));
+            } catch (JMException e) {
+                LOGGER.debug("failed to unregister limiter {}", limiter.getOperation(), e);
+            }
+        }
+    }
+
+    /**
+     * @description bulk的部分条目或者search的部分分片被拒绝, 请求本身成功也算过载
+     **/
+    static boolean hasRejections(ActionResponse response) {
+        if (response instanceof BulkResponse && ((BulkResponse) response).hasFailures()) {
+            for (BulkItemResponse item : (BulkResponse) response) {
+                if (item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                    return true;
+                }
+            }
+        } else if (response instanceof SearchResponse) {
+            for (ShardSearchFailure failure : ((SearchResponse) response).getShardFailures()) {
+                if (failure.status() == RestStatus.TOO_MANY_REQUESTS) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean isOverload(Exception e) {
+        return ExceptionsHelper.status(e) == RestStatus.TOO_MANY_REQUESTS
+                || ExceptionsHelper.unwrap(e, ElasticsearchTimeoutException.class, ReceiveTimeoutTransportException.class) != null;
+    }
+
+    private void register(AdaptiveLimiter limiter) {
+        try {
+            mBeanServer.registerMBean(limiter, objectName(limiter));
+        } catch (JMException e) {
+            // 同一个JVM中有多个LimitedClient时名称会冲突, 只影响JMX, 不影响限流
+            LOGGER.warn("failed to register limiter [{}] to jmx", limiter.getOperation(), e);
+        }
+    }
+
+    private static ObjectName objectName(AdaptiveLimiter limiter) throws JMException {
+        return new ObjectName("com.es:type=ConcurrencyLimit,operation=" + ObjectName.quote(limiter.getOperation()));
+    }
+}
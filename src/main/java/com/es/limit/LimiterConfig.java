@@ -0,0 +1,43 @@
+package com.es.limit;
+
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 16:30
+ * @Description: 自适应并发限制的参数
+ */
+@Value
+@Builder
+public class LimiterConfig {
+    /**
+     * 初始的并发上限
+     */
+    @Builder.Default
+    private int initialLimit = 16;
+    @Builder.Default
+    private int minLimit = 1;
+    @Builder.Default
+    private int maxLimit = 256;
+    /**
+     * 出现拒绝或者超过延迟目标时, 上限乘以这个比例
+     */
+    @Builder.Default
+    private double backoffRatio = 0.9;
+    /**
+     * 单次请求的延迟目标, 超过时和被拒绝一样视为过载
+     */
+    @Builder.Default
+    private TimeValue latencyTarget = TimeValue.timeValueSeconds(2);
+    /**
+     * 达到上限后最多排队的请求数, 队列满了直接拒绝
+     */
+    @Builder.Default
+    private int maxQueueSize = 1000;
+
+    public static LimiterConfig defaults() {
+        return LimiterConfig.builder().build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.es.load;
+
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:10
+ * @Description: 压测参数
+ */
+@Value
+@Builder
+public class LoadConfig {
+    /**
+     * 目标吞吐量, 每秒请求数
+     */
+    @Builder.Default
+    private double targetRate = 1000;
+    /**
+     * 统计时长, 不包含预热
+     */
+    @Builder.Default
+    private TimeValue duration = TimeValue.timeValueSeconds(60);
+    /**
+     * 预热时长, 预热期间的请求不计入报告
+     */
+    @Builder.Default
+    private TimeValue warmup = TimeValue.timeValueSeconds(10);
+    /**
+     * worker线程数, 线程不够时请求会排队, 排队时间计入延迟
+     */
+    @Builder.Default
+    private int threads = 64;
+}
@@ -0,0 +1,91 @@
+package com.es.load;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:20
+ * @Description: 固定速率的压测驱动
+ * <p>
+ * 第i个请求的计划发送时间是 start + i / targetRate, 由空闲的worker领取并等到计划时间再执行。
+ * 延迟按 完成时间 - 计划发送时间 统计, 而不是 完成时间 - 实际发送时间: 集群变慢时后面的请求被推迟发送,
+ * 推迟的这段时间也算在延迟里, 避免coordinated omission把卡顿期间的延迟藏起来。
+ * 实际的服务时间(完成时间 - 实际发送时间)单独统计, 两者差距大说明worker不够或者集群已经跟不上目标速率。
+ */
+public class LoadGenerator {
+    private static final Logger LOGGER = LogManager.getLogger(LoadGenerator.class);
+
+    private final Client client;
+    private final LoadConfig config;
+
+    public LoadGenerator(Client client, LoadConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    public LoadReport run(final OperationMix mix) throws InterruptedException {
+        final Map<LoadOperation, LoadReport.Stats> stats = new LinkedHashMap<>();
+        for (LoadOperation operation : mix.operations()) {
+            stats.put(operation, new LoadReport.Stats(operation.name()));
+        }
+        final long intervalNanos = (long) (1_000_000_000L / config.getTargetRate());
+        final long start = System.nanoTime() + intervalNanos;
+        final long measureFrom = start + config.getWarmup().nanos();
+        final long end = measureFrom + config.getDuration().nanos();
+        final AtomicLong tickets = new AtomicLong();
+
+        LOGGER.info("running {} ops/s for {} (+{} warmup) on {} threads", config.getTargetRate(),
+                config.getDuration(), config.getWarmup(), config.getThreads());
+        List<Thread> workers = new ArrayList<>(config.getThreads());
+        for (int i = 0; i < config.getThreads(); i++) {
+            Thread worker = EsExecutors.daemonThreadFactory("load-generator").newThread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = ThreadLocalRandom.current();
+                    while (true) {
+                        long intended = start + tickets.getAndIncrement() * intervalNanos;
+                        if (intended >= end) {
+                            return;
+                        }
+                        long now;
+                        while ((now = System.nanoTime()) < intended) {
+                            LockSupport.parkNanos(intended - now);
+                        }
+                        LoadOperation operation = mix.pick(random);
+                        boolean failed = false;
+                        try {
+                            operation.execute(client, random);
+                        } catch (Exception e) {
+                            failed = true;
+                            LOGGER.debug("[{}] failed", operation.name(), e);
+                        }
+                        long done = System.nanoTime();
+                        if (intended >= measureFrom) {
+                            stats.get(operation).record(done - intended, done - now, failed);
+                        }
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // 跟不上目标速率时最后一批请求会在end之后才完成, 按实际用时计算吞吐
+        long elapsed = System.nanoTime() - measureFrom;
+        return new LoadReport(config.getTargetRate(), elapsed / 1e9, new ArrayList<>(stats.values()));
+    }
+}
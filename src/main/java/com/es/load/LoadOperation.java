@@ -0,0 +1,24 @@
+package com.es.load;
+
+import org.elasticsearch.client.Client;
+
+import java.util.Random;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:00
+ * @Description: 压测中的一种操作, 会被多个worker线程同时调用, 实现必须线程安全
+ */
+public interface LoadOperation {
+
+    /**
+     * @description 报告中使用的名称
+     **/
+    String name();
+
+    /**
+     * @description 同步执行一次, 抛出异常记为失败
+     * @param random 当前worker线程的随机数, 用来选择查询条件和文档id
+     **/
+    void execute(Client client, Random random) throws Exception;
+}
@@ -0,0 +1,213 @@
+package com.es.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:30
+ * @Description: 一次压测的结果, 按操作统计, 时间单位都是微秒
+ * <p>
+ * latency是从计划发送时间开始算的延迟(已校正coordinated omission), service是从实际发送开始算的服务时间。
+ */
+public class LoadReport {
+    static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String CSV_HEADER = "operation,count,errors,rate,p50,p90,p99,p99.9,max,service_p50,service_p99,service_max";
+
+    private final double targetRate;
+    private final double elapsedSeconds;
+    private final List<Stats> operations;
+    private final Stats total = new Stats("total");
+
+    LoadReport(double targetRate, double elapsedSeconds, List<Stats> operations) {
+        this.targetRate = targetRate;
+        this.elapsedSeconds = elapsedSeconds;
+        this.operations = Collections.unmodifiableList(new ArrayList<>(operations));
+        for (Stats stats : operations) {
+            total.add(stats);
+        }
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @description 统计阶段实际完成的请求速率
+     **/
+    public double getAchievedRate() {
+        return elapsedSeconds <= 0 ? 0 : total.getCount() / elapsedSeconds;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public List<Stats> getOperations() {
+        return operations;
+    }
+
+    public Stats getTotal() {
+        return total;
+    }
+
+    public void toCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        for (Stats stats : operations) {
+            writeCsvRow(writer, stats);
+        }
+        writeCsvRow(writer, total);
+        writer.flush();
+    }
+
+    public XContentBuilder toXContent(XContentBuilder builder) throws IOException {
+        builder.startObject()
+                .field("target_rate", targetRate)
+                .field("achieved_rate", getAchievedRate())
+                .field("elapsed_seconds", elapsedSeconds)
+                .field("unit", "micros");
+        builder.startObject("operations");
+        for (Stats stats : operations) {
+            stats.toXContent(builder);
+        }
+        builder.endObject();
+        total.toXContent(builder);
+        return builder.endObject();
+    }
+
+    public String toJson() {
+        try {
+            return toXContent(XContentFactory.jsonBuilder().prettyPrint()).string();
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to render load report", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "target %.1f ops/s, achieved %.1f ops/s in %.1fs%n",
+                targetRate, getAchievedRate(), elapsedSeconds));
+        sb.append(String.format(Locale.ROOT, "%-12s %8s %6s %10s %10s %10s %10s %10s %12s%n",
+                "operation", "count", "errors", "p50", "p90", "p99", "p99.9", "max", "service_p99"));
+        for (Stats stats : operations) {
+            appendRow(sb, stats);
+        }
+        appendRow(sb, total);
+        return sb.toString();
+    }
+
+    private void writeCsvRow(Writer writer, Stats stats) throws IOException {
+        StringBuilder row = new StringBuilder(stats.getName()).append(',')
+                .append(stats.getCount()).append(',')
+                .append(stats.getErrors()).append(',')
+                .append(String.format(Locale.ROOT, "%.2f", elapsedSeconds <= 0 ? 0 : stats.getCount() / elapsedSeconds));
+        for (double percentile : PERCENTILES) {
+            row.append(',').append(stats.latency.getValueAtPercentile(percentile));
+        }
+        row.append(',').append(stats.latency.getMaxValue())
+                .append(',').append(stats.service.getValueAtPercentile(50))
+                .append(',').append(stats.service.getValueAtPercentile(99))
+                .append(',').append(stats.service.getMaxValue())
+                .append('\n');
+        writer.write(row.toString());
+    }
+
+    private static void appendRow(StringBuilder sb, Stats stats) {
+        sb.append(String.format(Locale.ROOT, "%-12s %8d %6d %10d %10d %10d %10d %10d %12d%n", stats.getName(),
+                stats.getCount(), stats.getErrors(),
+                stats.latency.getValueAtPercentile(50), stats.latency.getValueAtPercentile(90),
+                stats.latency.getValueAtPercentile(99), stats.latency.getValueAtPercentile(99.9),
+                stats.latency.getMaxValue(), stats.service.getValueAtPercentile(99)));
+    }
+
+    /**
+     * 单个操作的统计, 多个worker并发写入
+     */
+    public static class Stats {
+        private static final int SIGNIFICANT_DIGITS = 3;
+
+        private final String name;
+        private final Histogram latency = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram service = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param latencyNanos 完成时间 - 计划发送时间
+         * @param serviceNanos 完成时间 - 实际发送时间
+         */
+        void record(long latencyNanos, long serviceNanos, boolean failed) {
+            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            service.recordValue(TimeUnit.NANOSECONDS.toMicros(serviceNanos));
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        private void add(Stats other) {
+            latency.add(other.latency);
+            service.add(other.service);
+            errors.add(other.errors.sum());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return latency.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getLatencyAtPercentile(double percentile) {
+            return latency.getValueAtPercentile(percentile);
+        }
+
+        public long getServiceTimeAtPercentile(double percentile) {
+            return service.getValueAtPercentile(percentile);
+        }
+
+        public long getMaxLatency() {
+            return latency.getMaxValue();
+        }
+
+        private void toXContent(XContentBuilder builder) throws IOException {
+            builder.startObject(name)
+                    .field("count", getCount())
+                    .field("errors", getErrors());
+            builder.startObject("latency");
+            for (double percentile : PERCENTILES) {
+                builder.field("p" + formatPercentile(percentile), latency.getValueAtPercentile(percentile));
+            }
+            builder.field("max", latency.getMaxValue()).endObject();
+            builder.startObject("service_time");
+            for (double percentile : PERCENTILES) {
+                builder.field("p" + formatPercentile(percentile), service.getValueAtPercentile(percentile));
+            }
+            builder.field("max", service.getMaxValue()).endObject();
+            builder.endObject();
+        }
+
+        private static String formatPercentile(double percentile) {
+            return percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile);
+        }
+    }
+}
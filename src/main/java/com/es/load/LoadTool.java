@@ -0,0 +1,89 @@
+package com.es.load;
+
+import com.es.client.ClusterConfig;
+import com.es.client.EsClientFactory;
+import com.es.fixture.TestCluster;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:50
+ * @Description: 压测命令行入口, 参数为 key=value 形式
+ * <p>
+ * rate(每秒请求数) duration warmup threads mix(见 {@link Workloads#mix(String)}) docs index type
+ * seed(是否先写入测试数据) local(是否使用进程内的 {@link TestCluster}, 测试数据第一次生成后保存为快照) csv json(报告输出路径)。
+ * 不使用local时连接 {@link ClusterConfig#defaults()} 指定的集群, 可以用 -Des.hosts 和 -Des.cluster.name 修改。
+ */
+public final class LoadTool {
+
+    private LoadTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        boolean local = Boolean.parseBoolean(get(options, "local", "false"));
+        Workloads workloads = new Workloads(get(options, "index", "loadtest"), get(options, "type", "product"),
+                Integer.parseInt(get(options, "docs", "10000")));
+        LoadConfig config = LoadConfig.builder()
+                .targetRate(Double.parseDouble(get(options, "rate", "1000")))
+                .duration(TimeValue.parseTimeValue(get(options, "duration", "60s"), "duration"))
+                .warmup(TimeValue.parseTimeValue(get(options, "warmup", "10s"), "warmup"))
+                .threads(Integer.parseInt(get(options, "threads", "64")))
+                .build();
+        String mix = options.get("mix");
+
+        LoadReport report;
+        if (local) {
+            // 测试数据从快照恢复, 节点在进程退出时关闭
+            TestCluster cluster = TestCluster.get();
+            cluster.load(workloads.fixture());
+            report = run(cluster.client(), workloads, mix, config);
+        } else {
+            Client client = EsClientFactory.getClient();
+            if (Boolean.parseBoolean(get(options, "seed", "false"))) {
+                workloads.seed(client);
+            }
+            report = run(client, workloads, mix, config);
+        }
+
+        System.out.print(report);
+        if (options.containsKey("csv")) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(options.get("csv")), StandardCharsets.UTF_8)) {
+                report.toCsv(writer);
+            }
+        }
+        if (options.containsKey("json")) {
+            Files.write(Paths.get(options.get("json")), report.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        EsClientFactory.closeAll();
+    }
+
+    private static LoadReport run(Client client, Workloads workloads, String mix, LoadConfig config) throws InterruptedException {
+        return new LoadGenerator(client, config).run(mix == null ? workloads.defaultMix() : workloads.mix(mix));
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("expected key=value but was [" + arg + "]");
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static String get(Map<String, String> options, String key, String defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : value;
+    }
+}
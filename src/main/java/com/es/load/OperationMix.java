@@ -0,0 +1,43 @@
+package com.es.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:05
+ * @Description: 按权重组合的操作, 每次请求按权重随机选择一种操作
+ */
+public class OperationMix {
+    private final List<LoadOperation> operations = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    public OperationMix add(LoadOperation operation, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight of [" + operation.name() + "] must be > 0 but was " + weight);
+        }
+        totalWeight += weight;
+        operations.add(operation);
+        cumulativeWeights.add(totalWeight);
+        return this;
+    }
+
+    public LoadOperation pick(Random random) {
+        if (operations.isEmpty()) {
+            throw new IllegalStateException("operation mix is empty");
+        }
+        int index = Collections.binarySearch(cumulativeWeights, random.nextInt(totalWeight) + 1);
+        return operations.get(index >= 0 ? index : -index - 1);
+    }
+
+    public List<LoadOperation> operations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    public int weightOf(int index) {
+        return cumulativeWeights.get(index) - (index == 0 ? 0 : cumulativeWeights.get(index - 1));
+    }
+}
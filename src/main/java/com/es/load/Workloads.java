@@ -0,0 +1,279 @@
+package com.es.load;
+
+import com.entry.Product;
+import com.es.bulk.ProductIngester;
+import com.es.codec.ProductCodec;
+import com.es.fixture.Fixture;
+import com.es.fixture.TestCluster;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 20:40
+ * @Description: Product索引上的常用压测操作
+ * <p>
+ * 数据由 {@link #seed} 生成: id为0到docs-1, name由 {@link #WORDS} 中的单词随机组成, author和version取值有限,
+ * 查询条件从同一个词表里随机选, 保证大部分查询有结果。
+ * 操作名(term/match/fuzzy/wildcard/highlight/aggregation/get/bulk)也用在 {@link #mix(String)} 的配置里。
+ */
+public class Workloads {
+    static final String[] WORDS = {"elasticsearch", "lucene", "search", "engine", "index", "shard", "replica",
+            "cluster", "node", "query", "filter", "score", "analyzer", "token", "mapping", "document"};
+    private static final int AUTHORS = 50;
+    private static final int VERSIONS = 10;
+    private static final int BULK_SIZE = 100;
+
+    private final String index;
+    private final String type;
+    private final int docs;
+
+    public Workloads(String index, String type, int docs) {
+        this.index = index;
+        this.type = type;
+        this.docs = docs;
+    }
+
+    /**
+     * @description 写入docs条测试数据并刷新
+     **/
+    public void seed(Client client) {
+        Random random = new Random(docs);
+        try (ProductIngester ingester = new ProductIngester(client, index, type)) {
+            for (int i = 0; i < docs; i++) {
+                ingester.index(String.valueOf(i), randomProduct(random));
+            }
+        }
+        client.admin().indices().prepareRefresh(index).get();
+    }
+
+    /**
+     * @description 把 {@link #seed} 的数据作为fixture, 交给 {@link TestCluster} 时第二次运行开始直接从快照恢复
+     **/
+    public Fixture fixture() {
+        return new Fixture() {
+            @Override
+            public String index() {
+                return index;
+            }
+
+            @Override
+            public String version() {
+                return type.toLowerCase(Locale.ROOT) + "-" + docs;
+            }
+
+            @Override
+            public void load(Client client) {
+                seed(client);
+            }
+        };
+    }
+
+    /**
+     * @description 默认的读多写少组合
+     **/
+    public OperationMix defaultMix() {
+        return mix("term:20,match:30,fuzzy:5,wildcard:5,highlight:10,aggregation:5,get:20,bulk:5");
+    }
+
+    /**
+     * @description 按 "操作名:权重,操作名:权重" 的格式组合操作
+     **/
+    public OperationMix mix(String spec) {
+        OperationMix mix = new OperationMix();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected [operation:weight] but was [" + entry + "]");
+            }
+            mix.add(operation(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    public LoadOperation operation(String name) {
+        switch (name) {
+            case "term":
+                return term();
+            case "match":
+                return match();
+            case "fuzzy":
+                return fuzzy();
+            case "wildcard":
+                return wildcard();
+            case "highlight":
+                return highlight();
+            case "aggregation":
+                return aggregation();
+            case "get":
+                return get();
+            case "bulk":
+                return bulk();
+            default:
+                throw new IllegalArgumentException("unknown operation [" + name + "]");
+        }
+    }
+
+    public LoadOperation term() {
+        return new Operation("term") {
+            @Override
+            public void execute(Client client, Random random) {
+                check(client.prepareSearch(index).setTypes(type)
+                        .setQuery(QueryBuilders.termQuery(ProductCodec.AUTHOR + ".keyword", randomAuthor(random)))
+                        .get());
+            }
+        };
+    }
+
+    public LoadOperation match() {
+        return new Operation("match") {
+            @Override
+            public void execute(Client client, Random random) {
+                check(client.prepareSearch(index).setTypes(type)
+                        .setQuery(QueryBuilders.matchQuery(ProductCodec.NAME, randomWord(random) + " " + randomWord(random)))
+                        .get());
+            }
+        };
+    }
+
+    public LoadOperation fuzzy() {
+        return new Operation("fuzzy") {
+            @Override
+            public void execute(Client client, Random random) {
+                check(client.prepareSearch(index).setTypes(type)
+                        .setQuery(QueryBuilders.fuzzyQuery(ProductCodec.NAME, typo(randomWord(random), random))
+                                .fuzziness(Fuzziness.AUTO))
+                        .get());
+            }
+        };
+    }
+
+    public LoadOperation wildcard() {
+        return new Operation("wildcard") {
+            @Override
+            public void execute(Client client, Random random) {
+                String word = randomWord(random);
+                int from = random.nextInt(word.length() - 2);
+                check(client.prepareSearch(index).setTypes(type)
+                        .setQuery(QueryBuilders.wildcardQuery(ProductCodec.NAME, "*" + word.substring(from, from + 3) + "*"))
+                        .get());
+            }
+        };
+    }
+
+    public LoadOperation highlight() {
+        return new Operation("highlight") {
+            @Override
+            public void execute(Client client, Random random) {
+                check(client.prepareSearch(index).setTypes(type)
+                        .setQuery(QueryBuilders.matchQuery(ProductCodec.NAME, randomWord(random)))
+                        .highlighter(new HighlightBuilder().field(ProductCodec.NAME))
+                        .get());
+            }
+        };
+    }
+
+    public LoadOperation aggregation() {
+        return new Operation("aggregation") {
+            @Override
+            public void execute(Client client, Random random) {
+                check(client.prepareSearch(index).setTypes(type).setSize(0)
+                        .setQuery(QueryBuilders.matchQuery(ProductCodec.NAME, randomWord(random)))
+                        .addAggregation(AggregationBuilders.terms("by_author").field(ProductCodec.AUTHOR + ".keyword")
+                                .subAggregation(AggregationBuilders.terms("by_version").field(ProductCodec.VERSION + ".keyword")))
+                        .get());
+            }
+        };
+    }
+
+    public LoadOperation get() {
+        return new Operation("get") {
+            @Override
+            public void execute(Client client, Random random) {
+                client.prepareGet(index, type, String.valueOf(random.nextInt(docs))).get();
+            }
+        };
+    }
+
+    /**
+     * @description 覆盖写入BULK_SIZE条已有id的数据, 索引大小保持不变
+     **/
+    public LoadOperation bulk() {
+        return new Operation("bulk") {
+            @Override
+            public void execute(Client client, Random random) {
+                BulkRequestBuilder bulk = client.prepareBulk();
+                for (int i = 0; i < BULK_SIZE; i++) {
+                    bulk.add(client.prepareIndex(index, type, String.valueOf(random.nextInt(docs)))
+                            .setSource(ProductCodec.encode(randomProduct(random)), ProductCodec.CONTENT_TYPE));
+                }
+                BulkResponse response = bulk.get();
+                if (response.hasFailures()) {
+                    throw new IllegalStateException(response.buildFailureMessage());
+                }
+            }
+        };
+    }
+
+    private static Product randomProduct(Random random) {
+        StringBuilder name = new StringBuilder(randomWord(random));
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            name.append(' ').append(randomWord(random));
+        }
+        return new Product(name.toString(), randomAuthor(random), "v" + random.nextInt(VERSIONS));
+    }
+
+    private static String randomWord(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String randomAuthor(Random random) {
+        return "author" + random.nextInt(AUTHORS);
+    }
+
+    /**
+     * @description 随机替换一个字符, 模拟拼写错误
+     **/
+    private static String typo(String word, Random random) {
+        char[] chars = word.toCharArray();
+        chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    /**
+     * @description 部分分片失败也算失败, 否则报告里的延迟会偏低
+     **/
+    private static void check(SearchResponse response) {
+        if (response.getFailedShards() > 0) {
+            throw new IllegalStateException(response.getFailedShards() + " shards failed: "
+                    + response.getShardFailures()[0].reason());
+        }
+    }
+
+    private abstract static class Operation implements LoadOperation {
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.es.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 22:20
+ * @Description: 客户端调用指标的注册表
+ * <p>
+ * 每个(操作, 索引)对应一个 {@link OperationMetrics}, 第一次出现时自动创建并注册到JMX
+ * (ObjectName为 com.es:type=ClientMetrics,operation=xxx,index="xxx")。
+ * 每个统计周期结束时滚动直方图, 如果开启了日志输出, 会通过 com.es.metrics 这个logger打印本周期的统计。
+ */
+public class ClientMetrics implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(ClientMetrics.class);
+    public static final TimeValue DEFAULT_INTERVAL = TimeValue.timeValueMinutes(1);
+
+    private final ConcurrentMap<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final boolean logReport;
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public ClientMetrics() {
+        this(DEFAULT_INTERVAL, true);
+    }
+
+    /**
+     * @param interval  统计周期
+     * @param logReport 每个周期结束时是否打印统计日志
+     */
+    public ClientMetrics(TimeValue interval, boolean logReport) {
+        this.logReport = logReport;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("client-metrics"));
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report();
+            }
+        }, interval.millis(), interval.millis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @description 获取(操作, 索引)对应的指标, 不存在时创建
+     **/
+    public OperationMetrics get(String operation, String index) {
+        String key = operation + '|' + index;
+        OperationMetrics existing = metrics.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        OperationMetrics created = new OperationMetrics(operation, index);
+        existing = metrics.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        register(created);
+        return created;
+    }
+
+    public Collection<OperationMetrics> all() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    /**
+     * @description 结束当前统计周期, 并按需打印日志
+     **/
+    public void report() {
+        for (OperationMetrics operation : metrics.values()) {
+            operation.rollInterval();
+            if (logReport && (operation.getIntervalCount() > 0 || operation.getInFlight() > 0)) {
+                LOGGER.info("{}", operation);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (OperationMetrics operation : metrics.values()) {
+            try {
+                mBeanServer.unregisterMBean(objectName(operation));
+            } catch (JMException e) {
+                LOGGER.debug("failed to unregister metrics {}", operation.getOperation(), e);
+            }
+        }
+        metrics.clear();
+    }
+
+    private void register(OperationMetrics operation) {
+        try {
+            mBeanServer.registerMBean(operation, objectName(operation));
+        } catch (JMException e) {
+            // 同一个JVM中有多个ClientMetrics时名称会冲突, 只影响JMX, 不影响统计
+            LOGGER.warn("failed to register metrics [{}][{}] to jmx", operation.getOperation(), operation.getIndex(), e);
+        }
+    }
+
+    private static ObjectName objectName(OperationMetrics operation) throws JMException {
+        return new ObjectName("com.es:type=ClientMetrics,operation=" + ObjectName.quote(operation.getOperation())
+                + ",index=" + ObjectName.quote(operation.getIndex()));
+    }
+}
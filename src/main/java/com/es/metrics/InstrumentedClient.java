@@ -0,0 +1,181 @@
+package com.es.metrics;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.bulk.BulkAction;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteAction;
+import org.elasticsearch.action.get.GetAction;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetAction;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexAction;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateAction;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.FilterClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.search.SearchHit;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 22:40
+ * @Description: 记录每次调用耗时的client包装
+ * <p>
+ * 所有经过本client的请求(包括 prepareXxx 构建的请求)都会按(操作, 索引)记录到 {@link ClientMetrics}。
+ * 操作名为 index/get/mget/update/delete/bulk/search/aggregation, 其他action使用action名称。
+ * 请求和响应的字节数只统计文档_source部分, 不做额外的序列化。admin()下的请求不统计。
+ */
+public class InstrumentedClient extends FilterClient {
+    private static final String ALL_INDICES = "_all";
+
+    private final ClientMetrics metrics;
+
+    public InstrumentedClient(Client in, ClientMetrics metrics) {
+        super(in);
+        this.metrics = metrics;
+    }
+
+    public ClientMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    protected <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+    void doExecute(Action<Request, Response, RequestBuilder> action, Request request, final ActionListener<Response> listener) {
+        final OperationMetrics operation = metrics.get(operation(action, request), index(request));
+        final long start = System.nanoTime();
+        operation.begin(requestBytes(request));
+        try {
+            super.doExecute(action, request, new ActionListener<Response>() {
+                @Override
+                public void onResponse(Response response) {
+                    operation.end(System.nanoTime() - start, responseBytes(response), bulkItemFailures(response), false);
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    operation.end(System.nanoTime() - start, 0, 0, true);
+                    listener.onFailure(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            operation.end(System.nanoTime() - start, 0, 0, true);
+            throw e;
+        }
+    }
+
+    /**
+     * @description 请求对应的操作名, 其他按操作区分的client包装也使用这个分类
+     **/
+    public static String operation(Action<?, ?, ?> action, ActionRequest request) {
+        String name = action.name();
+        if (name.equals(SearchAction.NAME)) {
+            SearchRequest search = (SearchRequest) request;
+            boolean aggregation = search.source() != null && search.source().aggregations() != null;
+            return aggregation ? "aggregation" : "search";
+        } else if (name.equals(IndexAction.NAME)) {
+            return "index";
+        } else if (name.equals(GetAction.NAME)) {
+            return "get";
+        } else if (name.equals(MultiGetAction.NAME)) {
+            return "mget";
+        } else if (name.equals(UpdateAction.NAME)) {
+            return "update";
+        } else if (name.equals(DeleteAction.NAME)) {
+            return "delete";
+        } else if (name.equals(BulkAction.NAME)) {
+            return "bulk";
+        }
+        return name;
+    }
+
+    static String index(ActionRequest request) {
+        Set<String> indices = new TreeSet<>();
+        if (request instanceof BulkRequest) {
+            for (DocWriteRequest item : ((BulkRequest) request).requests()) {
+                addIndex(indices, item.index());
+            }
+        } else if (request instanceof MultiGetRequest) {
+            for (MultiGetRequest.Item item : ((MultiGetRequest) request).getItems()) {
+                addIndex(indices, item.index());
+            }
+        } else if (request instanceof IndicesRequest && ((IndicesRequest) request).indices() != null) {
+            for (String index : ((IndicesRequest) request).indices()) {
+                addIndex(indices, index);
+            }
+        }
+        return indices.isEmpty() ? ALL_INDICES : String.join(",", indices);
+    }
+
+    static long requestBytes(ActionRequest request) {
+        if (request instanceof BulkRequest) {
+            return ((BulkRequest) request).estimatedSizeInBytes();
+        } else if (request instanceof IndexRequest) {
+            return length(((IndexRequest) request).source());
+        } else if (request instanceof UpdateRequest) {
+            UpdateRequest update = (UpdateRequest) request;
+            long bytes = update.doc() == null ? 0 : length(update.doc().source());
+            return bytes + (update.upsertRequest() == null ? 0 : length(update.upsertRequest().source()));
+        }
+        return 0;
+    }
+
+    static long responseBytes(ActionResponse response) {
+        long bytes = 0;
+        if (response instanceof SearchResponse) {
+            for (SearchHit hit : ((SearchResponse) response).getHits().getHits()) {
+                bytes += length(hit.getSourceRef());
+            }
+        } else if (response instanceof GetResponse) {
+            bytes = length(((GetResponse) response).getSourceInternal());
+        } else if (response instanceof MultiGetResponse) {
+            for (MultiGetItemResponse item : (MultiGetResponse) response) {
+                if (!item.isFailed()) {
+                    bytes += length(item.getResponse().getSourceInternal());
+                }
+            }
+        }
+        return bytes;
+    }
+
+    static int bulkItemFailures(ActionResponse response) {
+        int failures = 0;
+        if (response instanceof BulkResponse && ((BulkResponse) response).hasFailures()) {
+            for (BulkItemResponse item : (BulkResponse) response) {
+                if (item.isFailed()) {
+                    failures++;
+                }
+            }
+        }
+        return failures;
+    }
+
+    private static void addIndex(Set<String> indices, String index) {
+        if (index != null) {
+            indices.add(index);
+        }
+    }
+
+    private static long length(BytesReference bytes) {
+        return bytes == null ? 0 : bytes.length();
+    }
+}
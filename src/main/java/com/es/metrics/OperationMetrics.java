@@ -0,0 +1,144 @@
+package com.es.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 22:05
+ * @Description: 单个(操作, 索引)的延迟直方图和计数器
+ * <p>
+ * 延迟用HdrHistogram的Recorder记录, 写入是无锁的; 统计周期结束时由 {@link ClientMetrics}
+ * 调用 {@link #rollInterval()} 取出这一周期的直方图, 同时累加到总直方图。
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String operation;
+    private final String index;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private volatile Histogram interval = new Histogram(SIGNIFICANT_DIGITS);
+    private volatile long totalP99;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder bulkItemFailures = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    OperationMetrics(String operation, String index) {
+        this.operation = operation;
+        this.index = index;
+    }
+
+    void begin(long requestBytes) {
+        inFlight.incrementAndGet();
+        this.requestBytes.add(requestBytes);
+    }
+
+    void end(long tookNanos, long responseBytes, int bulkItemFailures, boolean failed) {
+        inFlight.decrementAndGet();
+        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(tookNanos));
+        count.increment();
+        this.responseBytes.add(responseBytes);
+        this.bulkItemFailures.add(bulkItemFailures);
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    /**
+     * @description 结束当前统计周期
+     **/
+    synchronized void rollInterval() {
+        Histogram current = recorder.getIntervalHistogram();
+        total.add(current);
+        totalP99 = total.getValueAtPercentile(99);
+        interval = current;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String getIndex() {
+        return index;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public long getBulkItemFailures() {
+        return bulkItemFailures.sum();
+    }
+
+    @Override
+    public long getIntervalCount() {
+        return interval.getTotalCount();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return interval.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return interval.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getP999Micros() {
+        return interval.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return interval.getMaxValue();
+    }
+
+    @Override
+    public long getTotalP99Micros() {
+        return totalP99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s][%s] ops=%d (total %d), failures=%d, inFlight=%d, p50=%dus, p99=%dus, p999=%dus, max=%dus, "
+                        + "reqBytes=%d, respBytes=%d, bulkItemFailures=%d",
+                operation, index, getIntervalCount(), getCount(), getFailures(), getInFlight(), getP50Micros(),
+                getP99Micros(), getP999Micros(), getMaxMicros(), getRequestBytes(), getResponseBytes(), getBulkItemFailures());
+    }
+}
@@ -0,0 +1,40 @@
+package com.es.metrics;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 22:00
+ * @Description: 单个(操作, 索引)的统计指标, 通过JMX暴露。延迟单位为微秒, 分位数统计的是最近一个统计周期
+ */
+public interface OperationMetricsMXBean {
+
+    String getOperation();
+
+    String getIndex();
+
+    long getCount();
+
+    long getFailures();
+
+    long getInFlight();
+
+    long getRequestBytes();
+
+    long getResponseBytes();
+
+    long getBulkItemFailures();
+
+    long getIntervalCount();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    /**
+     * @description 启动以来的p99
+     **/
+    long getTotalP99Micros();
+}
@@ -0,0 +1,203 @@
+package com.es.query;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse;
+import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 13:30
+ * @Description: 把 *xx* 形式的通配符查询改写成n-gram子字段上的查询
+ * <p>
+ * 前面带*的通配符要遍历整个词典, 数据量大时是最慢的一类查询。字段按 {@link NgramFields} 加了子字段之后:
+ * 子串长度不小于gramSize时改写成ngram子字段上的match_phrase, 更短时改写成ngram_short子字段上的term查询。
+ * 子串里有空格、标点或者其他通配符时无法用n-gram表达, 保留原查询。
+ * <p>
+ * 改写后的结果和原查询相近, 但不保证相同: 通配符只在单个词条内匹配, n-gram是在原文的连续字符上切分的,
+ * 子串可以跨越原来的词条边界(例如标准分词把中文切成单字时, *全文* 原本匹配不到任何词条, 改写后能匹配到"全文")。
+ * <p>
+ * 只改写目标索引的mapping里确实有这两个子字段的字段, 没有子字段的索引保留原查询。
+ * 字段信息按索引缓存, 之后再给索引加上子字段时调用 {@link #clearCache()}。
+ * bool和constant_score会递归处理, bool的子句原地替换。
+ */
+public class InfixQueryRewriter {
+    private static final Logger LOGGER = LogManager.getLogger(InfixQueryRewriter.class);
+
+    private final Client client;
+    private final Set<String> fields;
+    private final int gramSize;
+    /**
+     * 索引 -> 有n-gram子字段的字段
+     */
+    private final ConcurrentMap<String, Set<String>> readyFields = new ConcurrentHashMap<>();
+
+    public InfixQueryRewriter(Client client, NgramFields ngramFields) {
+        this.client = client;
+        this.fields = new HashSet<>(ngramFields.getFields());
+        this.gramSize = ngramFields.getGramSize();
+    }
+
+    /**
+     * @description 改写发往indices的查询, 索引和search请求中的写法一致, 可以是别名或通配符
+     **/
+    public QueryBuilder rewrite(QueryBuilder query, String... indices) {
+        return rewrite(query, readyFields(indices));
+    }
+
+    public void clearCache() {
+        readyFields.clear();
+    }
+
+    /**
+     * @description 只改写ready中的字段
+     **/
+    QueryBuilder rewrite(QueryBuilder query, Set<String> ready) {
+        if (ready.isEmpty()) {
+            return query;
+        }
+        if (query instanceof WildcardQueryBuilder) {
+            return rewriteWildcard((WildcardQueryBuilder) query, ready);
+        }
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            rewriteAll(bool.must(), ready);
+            rewriteAll(bool.filter(), ready);
+            rewriteAll(bool.should(), ready);
+            rewriteAll(bool.mustNot(), ready);
+            return bool;
+        }
+        if (query instanceof ConstantScoreQueryBuilder) {
+            ConstantScoreQueryBuilder constantScore = (ConstantScoreQueryBuilder) query;
+            QueryBuilder inner = rewrite(constantScore.innerQuery(), ready);
+            if (inner == constantScore.innerQuery()) {
+                return constantScore;
+            }
+            return QueryBuilders.constantScoreQuery(inner)
+                    .boost(constantScore.boost())
+                    .queryName(constantScore.queryName());
+        }
+        return query;
+    }
+
+    private void rewriteAll(List<QueryBuilder> clauses, Set<String> ready) {
+        for (ListIterator<QueryBuilder> it = clauses.listIterator(); it.hasNext(); ) {
+            it.set(rewrite(it.next(), ready));
+        }
+    }
+
+    private QueryBuilder rewriteWildcard(WildcardQueryBuilder wildcard, Set<String> ready) {
+        String infix = infixOf(wildcard.value());
+        if (infix == null || !ready.contains(wildcard.fieldName())) {
+            return wildcard;
+        }
+        QueryBuilder rewritten;
+        // n-gram按字符计数, 不是按char
+        if (infix.codePointCount(0, infix.length()) >= gramSize) {
+            rewritten = QueryBuilders.matchPhraseQuery(wildcard.fieldName() + "." + NgramFields.SUBFIELD, infix);
+        } else {
+            rewritten = QueryBuilders.termQuery(wildcard.fieldName() + "." + NgramFields.SHORT_SUBFIELD,
+                    infix.toLowerCase(Locale.ROOT));
+        }
+        return rewritten.boost(wildcard.boost()).queryName(wildcard.queryName());
+    }
+
+    private Set<String> readyFields(String[] indices) {
+        String key = Strings.arrayToCommaDelimitedString(indices);
+        Set<String> ready = readyFields.get(key);
+        if (ready != null) {
+            return ready;
+        }
+        List<String> subfields = new ArrayList<>();
+        for (String field : fields) {
+            subfields.add(field + "." + NgramFields.SUBFIELD);
+            subfields.add(field + "." + NgramFields.SHORT_SUBFIELD);
+        }
+        GetFieldMappingsResponse response;
+        try {
+            response = client.admin().indices().prepareGetFieldMappings(indices)
+                    .setFields(subfields.toArray(new String[subfields.size()]))
+                    .get();
+        } catch (RuntimeException e) {
+            // 查不到mapping时不改写, 也不缓存, 原查询会给出真正的错误
+            LOGGER.debug("failed to get n-gram subfield mappings of {}", key, e);
+            return new HashSet<>();
+        }
+        ready = readyFields(response.mappings());
+        readyFields.put(key, ready);
+        return ready;
+    }
+
+    /**
+     * @description 每个索引都有ngram子字段(gramSize大于1时还要有ngram_short)的字段
+     **/
+    Set<String> readyFields(Map<String, Map<String, Map<String, FieldMappingMetaData>>> mappings) {
+        Set<String> ready = new HashSet<>();
+        if (mappings.isEmpty()) {
+            return ready;
+        }
+        for (String field : fields) {
+            boolean everyIndex = true;
+            for (Map<String, Map<String, FieldMappingMetaData>> types : mappings.values()) {
+                if (!hasSubfields(types, field)) {
+                    everyIndex = false;
+                    break;
+                }
+            }
+            if (everyIndex) {
+                ready.add(field);
+            }
+        }
+        return ready;
+    }
+
+    private boolean hasSubfields(Map<String, Map<String, FieldMappingMetaData>> types, String field) {
+        for (Map<String, FieldMappingMetaData> typeFields : types.values()) {
+            if (mapped(typeFields, field + "." + NgramFields.SUBFIELD)
+                    && (gramSize <= 1 || mapped(typeFields, field + "." + NgramFields.SHORT_SUBFIELD))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean mapped(Map<String, FieldMappingMetaData> typeFields, String field) {
+        FieldMappingMetaData mapping = typeFields.get(field);
+        return mapping != null && !mapping.isNull();
+    }
+
+    /**
+     * @description 取出 *xx* 中间的子串, 子串只能由字母和数字组成, 否则返回null
+     **/
+    static String infixOf(String pattern) {
+        if (pattern.length() < 3 || pattern.charAt(0) != '*' || pattern.charAt(pattern.length() - 1) != '*') {
+            return null;
+        }
+        String infix = pattern.substring(1, pattern.length() - 1);
+        for (int i = 0; i < infix.length(); ) {
+            int codePoint = infix.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                return null;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return infix;
+    }
+}
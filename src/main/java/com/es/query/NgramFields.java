@@ -0,0 +1,133 @@
+package com.es.query;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 13:10
+ * @Description: 给文本字段加n-gram子字段, 配合 {@link InfixQueryRewriter} 代替前后都带*的通配符查询
+ * <p>
+ * 每个字段加两个子字段:
+ * ngram 固定长度gramSize的切分, 每个gram的position连续, 用match_phrase就能精确匹配任意长度不小于gramSize的子串;
+ * ngram_short 长度1到gramSize-1的切分, 只用来做term查询, 覆盖比gramSize还短的子串。
+ * 中文默认用2-gram, 两个子字段加起来大约是原字段三倍的词条数。
+ */
+@Value
+@Builder
+public class NgramFields {
+    static final String SUBFIELD = "ngram";
+    static final String SHORT_SUBFIELD = "ngram_short";
+    static final String ANALYZER = "infix_ngram";
+    static final String SHORT_ANALYZER = "infix_ngram_short";
+
+    private static final Logger LOGGER = LogManager.getLogger(NgramFields.class);
+
+    /**
+     * 需要支持中缀查询的字段
+     */
+    @Singular
+    private List<String> fields;
+    /**
+     * ngram子字段的切分长度
+     */
+    @Builder.Default
+    private int gramSize = 2;
+
+    /**
+     * @description 建索引时需要带上的分析器配置
+     **/
+    public Settings analysisSettings() {
+        Settings.Builder settings = Settings.builder();
+        ngram(settings, ANALYZER, gramSize, gramSize);
+        if (gramSize > 1) {
+            ngram(settings, SHORT_ANALYZER, 1, gramSize - 1);
+        }
+        return settings.build();
+    }
+
+    private static void ngram(Settings.Builder settings, String name, int minGram, int maxGram) {
+        // 只切字母和数字, 中文字符也属于letter; 空格标点处断开, 和InfixQueryRewriter的判断保持一致
+        settings.put("index.analysis.tokenizer." + name + ".type", "ngram")
+                .put("index.analysis.tokenizer." + name + ".min_gram", minGram)
+                .put("index.analysis.tokenizer." + name + ".max_gram", maxGram)
+                .putArray("index.analysis.tokenizer." + name + ".token_chars", "letter", "digit")
+                .put("index.analysis.analyzer." + name + ".type", "custom")
+                .put("index.analysis.analyzer." + name + ".tokenizer", name)
+                .putArray("index.analysis.analyzer." + name + ".filter", "lowercase");
+    }
+
+    /**
+     * @description 在字段定义里写入子字段, 调用时builder应该停在字段对象内部, 例如
+     * builder.startObject("content").field("type", "text"); subfields(builder); builder.endObject();
+     **/
+    public XContentBuilder subfields(XContentBuilder builder) throws IOException {
+        builder.startObject("fields");
+        // 打分不看子字段的长度, 关掉norms节省空间
+        builder.startObject(SUBFIELD)
+                .field("type", "text")
+                .field("analyzer", ANALYZER)
+                .field("norms", false)
+                .endObject();
+        if (gramSize > 1) {
+            // 只做term查询, 不需要position
+            builder.startObject(SHORT_SUBFIELD)
+                    .field("type", "text")
+                    .field("analyzer", SHORT_ANALYZER)
+                    .field("norms", false)
+                    .field("index_options", "docs")
+                    .endObject();
+        }
+        return builder.endObject();
+    }
+
+    /**
+     * @description 给已有的索引装上分析器, 索引不存在时直接按配置创建
+     * <p>
+     * 分析器只能在索引关闭的状态下修改, 已经存在但没有分析器的索引会被短暂关闭, 期间不可读写。
+     **/
+    public void installAnalysis(Client client, String index) {
+        if (!client.admin().indices().prepareExists(index).get().isExists()) {
+            client.admin().indices().prepareCreate(index).setSettings(analysisSettings()).get();
+            return;
+        }
+        Settings current = client.admin().indices().prepareGetSettings(index).get().getIndexToSettings().get(index);
+        if (current != null && current.get("index.analysis.analyzer." + ANALYZER + ".tokenizer") != null) {
+            return;
+        }
+        LOGGER.info("closing index [{}] to install n-gram analyzers", index);
+        client.admin().indices().prepareClose(index).get();
+        try {
+            client.admin().indices().prepareUpdateSettings(index).setSettings(analysisSettings()).get();
+        } finally {
+            client.admin().indices().prepareOpen(index).get();
+        }
+    }
+
+    /**
+     * @description 装上分析器并给全部字段加子字段, 字段按text类型映射
+     * <p>
+     * 已有的文档不会自动写入子字段, 需要用update_by_query重新索引一遍之后查询才完整。
+     **/
+    public void provision(Client client, String index, String type) throws IOException {
+        installAnalysis(client, index);
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("properties");
+        for (String field : fields) {
+            mapping.startObject(field).field("type", "text");
+            subfields(mapping);
+            mapping.endObject();
+        }
+        mapping.endObject().endObject();
+        client.admin().indices().preparePutMapping(index).setType(type).setSource(mapping).get();
+    }
+}
@@ -0,0 +1,235 @@
+package com.es.query;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.WrapperQueryBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 21:10
+ * @Description: 预先序列化的查询模板
+ * <p>
+ * 查询结构只构建和序列化一次, 需要变化的值用 {@link #param(String)} 占位, 例如
+ * <pre>
+ * QueryTemplate byName = QueryTemplate.compile(QueryBuilders.matchQuery("name", QueryTemplate.param("q")));
+ * client.prepareSearch(index).setQuery(byName.bind("q", "storm")).get();
+ * </pre>
+ * 编译时把json按占位符切成若干段字节, 每次执行只把参数值编码后拼进去, 得到的是 {@link WrapperQueryBuilder},
+ * 由集群端解析, 客户端不再构建QueryBuilder树, 也不再做XContent序列化。
+ * <p>
+ * 占位符单独作为一个值时(如上例), 参数可以是字符串、数字或布尔值; 占位符是字符串的一部分时
+ * (如 wildcardQuery("name", "*" + param("q") + "*")), 参数按字符串拼接。模板是不可变的, 可以多线程共享。
+ */
+public final class QueryTemplate {
+    private static final char MARK = '\u0001';
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_]+");
+    /**
+     * json中占位符的编码形式, MARK会被转义成 \u0001
+     */
+    private static final byte[] ESCAPED_MARK = "\\u0001".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<byte[]> literals;
+    private final List<Slot> slots;
+    private final Set<String> names;
+    private final int literalLength;
+
+    private QueryTemplate(List<byte[]> literals, List<Slot> slots) {
+        this.literals = literals;
+        this.slots = slots;
+        Set<String> names = new LinkedHashSet<>();
+        int length = 0;
+        for (Slot slot : slots) {
+            names.add(slot.name);
+        }
+        for (byte[] literal : literals) {
+            length += literal.length;
+        }
+        this.names = Collections.unmodifiableSet(names);
+        this.literalLength = length;
+    }
+
+    /**
+     * @description 参数占位符, 名称只能包含字母、数字和下划线
+     **/
+    public static String param(String name) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("invalid template parameter name [" + name + "]");
+        }
+        return MARK + name + MARK;
+    }
+
+    public static QueryTemplate compile(QueryBuilder query) {
+        try {
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            query.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            return parse(BytesReference.toBytes(builder.bytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to compile query template", e);
+        }
+    }
+
+    /**
+     * @description 模板中的参数名, 按第一次出现的顺序
+     **/
+    public Set<String> getParameterNames() {
+        return names;
+    }
+
+    public WrapperQueryBuilder bind(String name, Object value) {
+        return bind(Collections.singletonMap(name, value));
+    }
+
+    public WrapperQueryBuilder bind(Map<String, ?> params) {
+        return QueryBuilders.wrapperQuery(renderBytes(params));
+    }
+
+    /**
+     * @description 拼接出完整的查询json
+     **/
+    public BytesReference render(Map<String, ?> params) {
+        return new BytesArray(renderBytes(params));
+    }
+
+    private byte[] renderBytes(Map<String, ?> params) {
+        for (String key : params.keySet()) {
+            if (!names.contains(key)) {
+                throw new IllegalArgumentException("unknown template parameter [" + key + "], expected " + names);
+            }
+        }
+        byte[][] values = new byte[slots.size()][];
+        int length = literalLength;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = encode(slots.get(i), params);
+            length += values[i].length;
+        }
+        byte[] json = new byte[length];
+        int position = 0;
+        for (int i = 0; i < values.length; i++) {
+            position = append(json, position, literals.get(i));
+            position = append(json, position, values[i]);
+        }
+        append(json, position, literals.get(values.length));
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < slots.size(); i++) {
+            sb.append(new String(literals.get(i), StandardCharsets.UTF_8));
+            sb.append(slots.get(i).quoted ? "{{" : "{{{").append(slots.get(i).name).append(slots.get(i).quoted ? "}}" : "}}}");
+        }
+        return sb.append(new String(literals.get(slots.size()), StandardCharsets.UTF_8)).toString();
+    }
+
+    static QueryTemplate parse(byte[] json) {
+        List<byte[]> literals = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        int literalStart = 0;
+        int i = indexOf(json, 0);
+        while (i >= 0) {
+            int nameStart = i + ESCAPED_MARK.length;
+            int nameEnd = indexOf(json, nameStart);
+            if (nameEnd < 0) {
+                throw new IllegalArgumentException("unterminated template parameter in " + new String(json, StandardCharsets.UTF_8));
+            }
+            String name = new String(json, nameStart, nameEnd - nameStart, StandardCharsets.US_ASCII);
+            int end = nameEnd + ESCAPED_MARK.length;
+            // 占位符正好是整个字符串值时连同引号一起替换, 参数可以是任意标量
+            boolean quoted = i > 0 && json[i - 1] == '"' && end < json.length && json[end] == '"';
+            int start = quoted ? i - 1 : i;
+            if (quoted) {
+                end++;
+            }
+            literals.add(copy(json, literalStart, start));
+            slots.add(new Slot(name, quoted));
+            literalStart = end;
+            i = indexOf(json, end);
+        }
+        literals.add(copy(json, literalStart, json.length));
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("query template has no parameters, use the query directly");
+        }
+        return new QueryTemplate(literals, slots);
+    }
+
+    private static byte[] encode(Slot slot, Map<String, ?> params) {
+        Object value = params.get(slot.name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing value for template parameter [" + slot.name + "]");
+        }
+        if (slot.quoted && (value instanceof Number || value instanceof Boolean)) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(value.toString());
+        if (!slot.quoted) {
+            return escaped;
+        }
+        byte[] quoted = new byte[escaped.length + 2];
+        quoted[0] = '"';
+        System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+        quoted[quoted.length - 1] = '"';
+        return quoted;
+    }
+
+    private static int append(byte[] json, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, json, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private static int indexOf(byte[] json, int from) {
+        outer:
+        for (int i = from; i <= json.length - ESCAPED_MARK.length; i++) {
+            for (int j = 0; j < ESCAPED_MARK.length; j++) {
+                if (json[i + j] != ESCAPED_MARK[j]) {
+                    continue outer;
+                }
+            }
+            // 前面有奇数个反斜杠时, 这里是查询中原有的文本 "\\u0001", 不是占位符
+            int backslashes = 0;
+            while (i - backslashes > 0 && json[i - backslashes - 1] == '\\') {
+                backslashes++;
+            }
+            if (backslashes % 2 == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] copy(byte[] json, int from, int to) {
+        byte[] copy = new byte[to - from];
+        System.arraycopy(json, from, copy, 0, copy.length);
+        return copy;
+    }
+
+    private static final class Slot {
+        final String name;
+        /**
+         * 占位符是否是一个完整的json字符串值
+         */
+        final boolean quoted;
+
+        Slot(String name, boolean quoted) {
+            this.name = name;
+            this.quoted = quoted;
+        }
+    }
+}
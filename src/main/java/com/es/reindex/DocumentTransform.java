@@ -0,0 +1,18 @@
+package com.es.reindex;
+
+import java.util.Map;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 22:45
+ * @Description: reindex时对每条文档的转换, 会被多个slice线程同时调用, 实现必须线程安全
+ */
+public interface DocumentTransform {
+
+    /**
+     * @param id     文档id
+     * @param source 原文档的_source, 可以直接修改后返回
+     * @return 写入目标索引的_source, 返回null表示跳过这条文档
+     */
+    Map<String, Object> transform(String id, Map<String, Object> source);
+}
@@ -0,0 +1,115 @@
+package com.es.reindex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 22:55
+ * @Description: reindex的检查点, 记录每个slice已经确认写入的最后一个_uid和已经完成的slice
+ * <p>
+ * 每个slice按_uid升序读取, 检查点之前(含)的文档都已经写入成功。保存时先写临时文件再原子替换,
+ * 进程在保存过程中被杀掉也不会留下半个文件。
+ */
+class ReindexCheckpoint {
+    private static final String SOURCE = "source";
+    private static final String DESTINATION = "destination";
+    private static final String SLICES = "slices";
+    private static final String DONE = ".done";
+
+    private final String source;
+    private final String destination;
+    private final String[] uids;
+    private final boolean[] done;
+
+    ReindexCheckpoint(String source, String destination, int slices) {
+        this.source = source;
+        this.destination = destination;
+        this.uids = new String[slices];
+        this.done = new boolean[slices];
+    }
+
+    /**
+     * @description 读取检查点, 文件不存在时返回新的检查点; 参数和检查点不一致时抛出IllegalStateException
+     **/
+    static ReindexCheckpoint load(Path file, String source, String destination, int slices) throws IOException {
+        ReindexCheckpoint checkpoint = new ReindexCheckpoint(source, destination, slices);
+        if (file == null || !Files.exists(file)) {
+            return checkpoint;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        if (!source.equals(properties.getProperty(SOURCE)) || !destination.equals(properties.getProperty(DESTINATION))
+                || slices != Integer.parseInt(properties.getProperty(SLICES, "-1"))) {
+            throw new IllegalStateException("checkpoint " + file + " was written for [" + properties.getProperty(SOURCE)
+                    + "] -> [" + properties.getProperty(DESTINATION) + "] with " + properties.getProperty(SLICES)
+                    + " slices, delete it to start over");
+        }
+        for (int i = 0; i < slices; i++) {
+            checkpoint.uids[i] = properties.getProperty(String.valueOf(i));
+            checkpoint.done[i] = Boolean.parseBoolean(properties.getProperty(i + DONE));
+        }
+        return checkpoint;
+    }
+
+    synchronized void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SOURCE, source);
+        properties.setProperty(DESTINATION, destination);
+        properties.setProperty(SLICES, String.valueOf(uids.length));
+        for (int i = 0; i < uids.length; i++) {
+            if (uids[i] != null) {
+                properties.setProperty(String.valueOf(i), uids[i]);
+            }
+            if (done[i]) {
+                properties.setProperty(i + DONE, "true");
+            }
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "reindex checkpoint");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    synchronized String uid(int slice) {
+        return uids[slice];
+    }
+
+    synchronized void advance(int slice, String uid) {
+        uids[slice] = uid;
+    }
+
+    synchronized boolean isDone(int slice) {
+        return done[slice];
+    }
+
+    synchronized void markDone(int slice) {
+        done[slice] = true;
+    }
+
+    synchronized Set<Integer> doneSlices() {
+        Set<Integer> slices = new HashSet<>();
+        for (int i = 0; i < done.length; i++) {
+            if (done[i]) {
+                slices.add(i);
+            }
+        }
+        return slices;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return source + " -> " + destination + " uids=" + Arrays.toString(uids) + " done=" + Arrays.toString(done);
+    }
+}
@@ -0,0 +1,64 @@
+package com.es.reindex;
+
+import com.es.bulk.BulkConfig;
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.nio.file.Path;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 22:50
+ * @Description: reindex参数
+ */
+@Value
+@Builder
+public class ReindexConfig {
+    /**
+     * 并行读取的slice数, 一般设置为源索引的分片数
+     */
+    @Builder.Default
+    private int slices = Runtime.getRuntime().availableProcessors();
+    /**
+     * 每次scroll拉取的条数
+     */
+    @Builder.Default
+    private int pageSize = 1000;
+    @Builder.Default
+    private TimeValue keepAlive = TimeValue.timeValueMinutes(5);
+    /**
+     * 写入参数, 使用其中的bulkActions、bulkSize、concurrentRequests(所有slice共享)和重试参数
+     */
+    @Builder.Default
+    private BulkConfig bulk = BulkConfig.builder().bulkActions(1000).concurrentRequests(4).build();
+    /**
+     * 每秒最多写入的文档数, 0表示不限制
+     */
+    @Builder.Default
+    private double maxDocsPerSecond = 0;
+    /**
+     * 每秒最多写入的_source字节数, 0表示不限制
+     */
+    @Builder.Default
+    private ByteSizeValue maxBytesPerSecond = new ByteSizeValue(0, ByteSizeUnit.BYTES);
+    /**
+     * 检查点文件, 为null时不支持中断后继续
+     */
+    private Path checkpoint;
+    /**
+     * 保存检查点的间隔
+     */
+    @Builder.Default
+    private TimeValue checkpointInterval = TimeValue.timeValueSeconds(5);
+    /**
+     * 目标索引的type, 为null时沿用源文档的type
+     */
+    private String destinationType;
+
+    public static ReindexConfig defaults() {
+        return ReindexConfig.builder().build();
+    }
+}
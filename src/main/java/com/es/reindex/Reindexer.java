@@ -0,0 +1,420 @@
+package com.es.reindex;
+
+import com.es.search.HitSink;
+import com.es.search.SliceListener;
+import com.es.search.SlicedScrollExporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.bulk.Retry;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 23:00
+ * @Description: 客户端的并行reindex, 支持转换、限速和中断后继续
+ * <p>
+ * 用 {@link SlicedScrollExporter} 按slice并行读取源索引, 每个slice按_uid升序; 每条文档经过可选的
+ * {@link DocumentTransform} 后攒成bulk异步写入目标索引, 所有slice共享concurrentRequests个在途bulk,
+ * 被拒绝的条目按 {@link BackoffPolicy} 重试(和BulkProcessor同一套 {@link Retry})。
+ * 写入速度可以按文档数和字节数限制, 运行中可以用 {@link #rethrottle} 调整, 迁移时不会挤占线上流量。
+ * <p>
+ * 配置了检查点文件时, 每个slice记录已经确认写入的最后一个_uid, 定时保存。重新运行时已完成的slice直接跳过,
+ * 未完成的slice重新读取, 检查点之前的文档不再写入。mapping冲突等条目级失败计入 {@link #getFailed()} 后跳过,
+ * 重试后仍被拒绝或者bulk整体失败时停止reindex并保存检查点, 抛出IOException。
+ * <p>
+ * 目标索引需要事先按新的mapping创建好, 大量数据时可以配合 {@link com.es.bulk.BulkLoadSession} 使用。
+ */
+public class Reindexer {
+    private static final Logger LOGGER = LogManager.getLogger(Reindexer.class);
+
+    private final Client client;
+    private final String source;
+    private final String destination;
+    private final ReindexConfig config;
+    private final Throttle docThrottle;
+    private final Throttle byteThrottle;
+    private final Retry retry;
+    private final int concurrency;
+    private final Semaphore bulkPermits;
+    private QueryBuilder query = QueryBuilders.matchAllQuery();
+    private DocumentTransform transform;
+
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Exception fatal;
+
+    public Reindexer(Client client, String source, String destination) {
+        this(client, source, destination, ReindexConfig.defaults());
+    }
+
+    public Reindexer(Client client, String source, String destination, ReindexConfig config) {
+        this.client = client;
+        this.source = source;
+        this.destination = destination;
+        this.config = config;
+        this.docThrottle = new Throttle(config.getMaxDocsPerSecond());
+        this.byteThrottle = new Throttle(config.getMaxBytesPerSecond().getBytes());
+        this.retry = Retry.on(EsRejectedExecutionException.class)
+                .policy(BackoffPolicy.exponentialBackoff(config.getBulk().getRetryInitialDelay(), config.getBulk().getMaxRetries()))
+                .using(client.threadPool());
+        this.concurrency = Math.max(1, config.getBulk().getConcurrentRequests());
+        this.bulkPermits = new Semaphore(concurrency);
+    }
+
+    /**
+     * @description 只迁移匹配的文档, 默认全部
+     **/
+    public Reindexer query(QueryBuilder query) {
+        this.query = query;
+        return this;
+    }
+
+    public Reindexer transform(DocumentTransform transform) {
+        this.transform = transform;
+        return this;
+    }
+
+    /**
+     * @description 调整限速, 立即生效, 0表示不限制
+     **/
+    public void rethrottle(double maxDocsPerSecond, ByteSizeValue maxBytesPerSecond) {
+        docThrottle.setRate(maxDocsPerSecond);
+        byteThrottle.setRate(maxBytesPerSecond.getBytes());
+    }
+
+    /**
+     * @description 执行reindex, 阻塞到完成, 返回本次写入成功的文档数
+     **/
+    public long run() throws IOException {
+        final int slices = config.getSlices();
+        final ReindexCheckpoint checkpoint = ReindexCheckpoint.load(config.getCheckpoint(), source, destination, slices);
+        if (checkpoint.doneSlices().size() == slices) {
+            LOGGER.info("reindex [{}] -> [{}] already completed according to {}", source, destination, config.getCheckpoint());
+            return 0;
+        }
+        final SliceWriter[] writers = new SliceWriter[slices];
+        for (int i = 0; i < slices; i++) {
+            writers[i] = new SliceWriter(i, checkpoint);
+        }
+        ScheduledExecutorService saver = null;
+        if (config.getCheckpoint() != null) {
+            saver = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("reindex-checkpoint"));
+            long interval = config.getCheckpointInterval().millis();
+            saver.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    saveCheckpoint(checkpoint);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+
+        SlicedScrollExporter exporter = new SlicedScrollExporter(client, source)
+                .source(new SearchSourceBuilder().query(query).sort("_uid", SortOrder.ASC))
+                .slices(slices)
+                .pageSize(config.getPageSize())
+                .keepAlive(config.getKeepAlive())
+                .skipSlices(checkpoint.doneSlices())
+                .sliceListener(new SliceListener() {
+                    @Override
+                    public void onSliceDone(int slice, long hits) throws IOException {
+                        writers[slice].finish();
+                    }
+                });
+        IOException failure = null;
+        try {
+            exporter.export(new HitSink() {
+                @Override
+                public void accept(int slice, SearchHit hit) throws IOException {
+                    writers[slice].add(hit);
+                }
+            });
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            // 等在途的bulk全部返回, 检查点才是最终状态
+            bulkPermits.acquireUninterruptibly(concurrency);
+            bulkPermits.release(concurrency);
+            if (saver != null) {
+                saver.shutdownNow();
+            }
+            saveCheckpoint(checkpoint);
+        }
+        if (fatal != null) {
+            throw new IOException("reindex [" + source + "] -> [" + destination + "] aborted, checkpoint " + checkpoint, fatal);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        LOGGER.info("reindex [{}] -> [{}] finished, read {}, written {}, dropped {}, failed {}",
+                source, destination, read.get(), written.get(), dropped.get(), failed.get());
+        return written.get();
+    }
+
+    public long getRead() {
+        return read.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @description 被转换跳过的文档数
+     **/
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @description 写入失败后跳过的文档数
+     **/
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private void saveCheckpoint(ReindexCheckpoint checkpoint) {
+        if (config.getCheckpoint() == null) {
+            return;
+        }
+        try {
+            checkpoint.save(config.getCheckpoint());
+        } catch (IOException e) {
+            LOGGER.warn("failed to save reindex checkpoint to {}", config.getCheckpoint(), e);
+        }
+    }
+
+    private void abort(Exception e) {
+        if (fatal == null) {
+            fatal = e;
+        }
+    }
+
+    /**
+     * @description _uid在lucene中按UTF-8字节排序
+     **/
+    static int compareUid(String a, String b) {
+        return new BytesRef(a).compareTo(new BytesRef(b));
+    }
+
+    /**
+     * 一个slice的写入状态, add/flush/finish只在slice线程上调用, bulk的回调在其他线程
+     */
+    private class SliceWriter {
+        private final int slice;
+        private final ReindexCheckpoint checkpoint;
+        private final String resumeAfter;
+        /**
+         * 已经发出的bulk, 按发出顺序, value为bulk覆盖到的最后一个_uid
+         */
+        private final TreeMap<Long, String> pending = new TreeMap<>();
+        /**
+         * 已经完成但前面还有未完成bulk的序号
+         */
+        private final Set<Long> completed = new HashSet<>();
+        private long nextSeq;
+        private boolean exhausted;
+
+        private boolean resumed;
+        private BulkRequest bulk = new BulkRequest();
+        private String lastUid;
+
+        SliceWriter(int slice, ReindexCheckpoint checkpoint) {
+            this.slice = slice;
+            this.checkpoint = checkpoint;
+            this.resumeAfter = checkpoint.uid(slice);
+            this.resumed = resumeAfter == null;
+        }
+
+        void add(SearchHit hit) throws IOException {
+            if (fatal != null) {
+                throw new IOException("reindex aborted", fatal);
+            }
+            read.incrementAndGet();
+            String uid = hit.getType() + "#" + hit.getId();
+            if (!resumed) {
+                if (compareUid(uid, resumeAfter) <= 0) {
+                    return;
+                }
+                resumed = true;
+                LOGGER.info("slice [{}] resumed after [{}]", slice, resumeAfter);
+            }
+            lastUid = uid;
+            IndexRequest request = toRequest(hit);
+            if (request == null) {
+                dropped.incrementAndGet();
+                return;
+            }
+            try {
+                docThrottle.acquire(1);
+                byteThrottle.acquire(request.source().length());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("reindex interrupted", e);
+            }
+            bulk.add(request);
+            if (bulk.numberOfActions() >= config.getBulk().getBulkActions()
+                    || bulk.estimatedSizeInBytes() >= config.getBulk().getBulkSize().getBytes()) {
+                flush();
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            synchronized (this) {
+                exhausted = true;
+                advance();
+            }
+        }
+
+        private IndexRequest toRequest(SearchHit hit) {
+            String type = config.getDestinationType() == null ? hit.getType() : config.getDestinationType();
+            IndexRequest request = new IndexRequest(destination, type, hit.getId());
+            SearchHitField routing = hit.getField("_routing");
+            if (routing != null) {
+                request.routing(String.valueOf(routing.getValue()));
+            }
+            SearchHitField parent = hit.getField("_parent");
+            if (parent != null) {
+                request.parent(String.valueOf(parent.getValue()));
+            }
+            if (transform == null) {
+                BytesReference sourceRef = hit.getSourceRef();
+                return request.source(sourceRef, XContentFactory.xContentType(sourceRef));
+            }
+            Map<String, Object> transformed = transform.transform(hit.getId(), hit.getSourceAsMap());
+            return transformed == null ? null : request.source(transformed);
+        }
+
+        private void flush() throws IOException {
+            if (lastUid == null) {
+                return;
+            }
+            final BulkRequest request = bulk;
+            final long seq;
+            synchronized (this) {
+                seq = nextSeq++;
+                pending.put(seq, lastUid);
+            }
+            bulk = new BulkRequest();
+            lastUid = null;
+            if (request.numberOfActions() == 0) {
+                // 这一段文档都被转换跳过了, 也要推进检查点
+                completed(seq);
+                return;
+            }
+            try {
+                bulkPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("reindex interrupted", e);
+            }
+            try {
+                retry.withAsyncBackoff(new BiConsumer<BulkRequest, ActionListener<BulkResponse>>() {
+                    @Override
+                    public void accept(BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
+                        client.bulk(bulkRequest, listener);
+                    }
+                }, request, new ActionListener<BulkResponse>() {
+                    @Override
+                    public void onResponse(BulkResponse response) {
+                        try {
+                            if (handle(response)) {
+                                completed(seq);
+                            }
+                        } finally {
+                            bulkPermits.release();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        abort(e);
+                        bulkPermits.release();
+                    }
+                }, Settings.EMPTY);
+            } catch (RuntimeException e) {
+                bulkPermits.release();
+                abort(e);
+                throw new IOException("failed to send bulk to [" + destination + "]", e);
+            }
+        }
+
+        /**
+         * @description 统计bulk结果, 重试后仍被拒绝时返回false, 这个bulk不算完成
+         **/
+        private boolean handle(BulkResponse response) {
+            int itemFailures = 0;
+            for (BulkItemResponse item : response) {
+                if (!item.isFailed()) {
+                    continue;
+                }
+                if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                    abort(new EsRejectedExecutionException("bulk to [" + destination + "] still rejected after retries: "
+                            + item.getFailureMessage()));
+                    return false;
+                }
+                itemFailures++;
+            }
+            if (itemFailures > 0) {
+                LOGGER.warn("slice [{}] skipped {} documents that failed to index: {}", slice, itemFailures,
+                        response.buildFailureMessage());
+            }
+            written.addAndGet(response.getItems().length - itemFailures);
+            failed.addAndGet(itemFailures);
+            return true;
+        }
+
+        private synchronized void completed(long seq) {
+            completed.add(seq);
+            advance();
+        }
+
+        /**
+         * @description 检查点只推进到第一个未完成的bulk之前
+         **/
+        private void advance() {
+            while (!pending.isEmpty() && completed.contains(pending.firstKey())) {
+                long seq = pending.firstKey();
+                checkpoint.advance(slice, pending.remove(seq));
+                completed.remove(seq);
+            }
+            if (exhausted && pending.isEmpty() && fatal == null) {
+                checkpoint.markDone(slice);
+            }
+        }
+    }
+}
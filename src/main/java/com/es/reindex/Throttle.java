@@ -0,0 +1,50 @@
+package com.es.reindex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 22:40
+ * @Description: 按速率发放许可的限速器, 速率可以在运行中修改
+ * <p>
+ * 每次 {@link #acquire} 预约一段时间, 多个线程按调用顺序排队, 等待在锁外进行。速率小于等于0表示不限速。
+ */
+class Throttle {
+    private double permitsPerSecond;
+    private long nextFree;
+
+    Throttle(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    synchronized void setRate(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    synchronized double getRate() {
+        return permitsPerSecond;
+    }
+
+    void acquire(long permits) throws InterruptedException {
+        long wait = reserve(permits, System.nanoTime());
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * @description 预约permits个许可, 返回需要等待的纳秒数
+     **/
+    synchronized long reserve(long permits, long now) {
+        if (permitsPerSecond <= 0) {
+            return 0;
+        }
+        // 空闲期间不累积额度, 避免停顿之后一下子冲上去
+        if (nextFree - now < 0) {
+            nextFree = now;
+        }
+        long wait = nextFree - now;
+        nextFree += (long) (permits * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        return wait;
+    }
+}
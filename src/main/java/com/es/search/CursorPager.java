@@ -0,0 +1,126 @@
+package com.es.search;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 11:20
+ * @Description: 基于游标的深分页, 用来代替from/size
+ * <p>
+ * from/size翻到第N页时每个分片都要取出from+size条再在协调节点上排序, 越往后越慢,
+ * 超过index.max_result_window直接报错。这里每一页都是一次search_after查询, 代价和翻到第几页无关。
+ * 上一页最后一条的排序值编码成 {@link SearchCursor} 返回给调用方, 翻页时原样带回来即可, 服务端不保存任何状态。
+ * 游标只能用在生成它的查询上(索引、类型、查询条件和排序都相同), 否则抛出IllegalArgumentException。
+ * <p>
+ * 默认使用query_then_fetch, 只有明确要求时才用dfs_query_then_fetch, 多一轮请求换更准确的打分。
+ */
+public class CursorPager {
+    private final Client client;
+
+    public CursorPager(Client client) {
+        this.client = client;
+    }
+
+    public Page page(SearchRequestBuilder request, int size, String cursor) {
+        return page(request, size, cursor, false);
+    }
+
+    /**
+     * @param request 查询条件, 没有排序时按_score倒序, 会追加_uid作为tiebreaker。只读取, 不会被修改
+     * @param size    每页条数
+     * @param cursor  上一页返回的游标, 第一页传null
+     * @param dfs     是否使用dfs_query_then_fetch
+     */
+    public Page page(SearchRequestBuilder request, int size, String cursor, boolean dfs) {
+        // 调用方的builder可能还要复用, 排序和search_after加在拷贝上
+        SearchRequest search = SearchCopies.copy(request.request());
+        SearchSourceBuilder source = search.source();
+        if (source == null) {
+            source = new SearchSourceBuilder();
+            search.source(source);
+        }
+        if (source.sorts() == null || source.sorts().isEmpty()) {
+            source.sort(SortBuilders.scoreSort().order(SortOrder.DESC));
+        }
+        if (!hasTiebreaker(source.sorts())) {
+            source.sort(SearchAfterHitIterator.DEFAULT_TIEBREAKER, SortOrder.ASC);
+        }
+        source.from(0).size(size);
+        search.searchType(dfs ? SearchType.DFS_QUERY_THEN_FETCH : SearchType.QUERY_THEN_FETCH);
+        int fingerprint = fingerprint(search);
+        if (cursor != null) {
+            source.searchAfter(SearchCursor.decode(fingerprint, source.sorts().size(), cursor));
+        }
+        SearchResponse response = client.search(search).actionGet();
+        SearchHit[] hits = response.getHits().getHits();
+        String next = hits.length < size ? null
+                : SearchCursor.encode(fingerprint, hits[hits.length - 1].getSortValues());
+        return new Page(hits, next, response.getHits().getTotalHits());
+    }
+
+    private static boolean hasTiebreaker(List<SortBuilder<?>> sorts) {
+        SortBuilder<?> last = sorts.get(sorts.size() - 1);
+        return last instanceof FieldSortBuilder
+                && SearchAfterHitIterator.DEFAULT_TIEBREAKER.equals(((FieldSortBuilder) last).getFieldName());
+    }
+
+    /**
+     * @description 查询的指纹: 索引、类型、查询条件和排序, 任何一项变了旧游标里的排序值就对不上了
+     **/
+    static int fingerprint(SearchRequest request) {
+        SearchSourceBuilder source = request.source();
+        int hash = Arrays.hashCode(request.indices());
+        hash = 31 * hash + Arrays.hashCode(request.types());
+        hash = 31 * hash + Objects.hashCode(source.query() == null ? null : source.query().toString());
+        hash = 31 * hash + Objects.hashCode(source.postFilter() == null ? null : source.postFilter().toString());
+        for (SortBuilder<?> sort : source.sorts()) {
+            hash = 31 * hash + sort.toString().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * @description 一页结果, nextCursor为null表示已经是最后一页
+     **/
+    public static class Page {
+        private final SearchHit[] hits;
+        private final String nextCursor;
+        private final long totalHits;
+
+        Page(SearchHit[] hits, String nextCursor, long totalHits) {
+            this.hits = hits;
+            this.nextCursor = nextCursor;
+            this.totalHits = totalHits;
+        }
+
+        public SearchHit[] getHits() {
+            return hits;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasNext() {
+            return nextCursor != null;
+        }
+
+        public long getTotalHits() {
+            return totalHits;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.es.search;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 09:30
+ * @Description: 把高亮片段合并进_source输出
+ * <p>
+ * 按token顺序读一遍_source字节, 同时写出json: 遇到有高亮结果的字段就写高亮片段并跳过原值,
+ * 其他字段原样拷贝。不经过 getSourceAsMap 和再次序列化, 一次遍历完成。
+ * 只替换顶层字段, 高亮字段在_source中不存在时(比如被source过滤掉了)追加在最后。
+ * <p>
+ * 配合 {@link #prepare} 只取页面需要的字段, 大文档可以少传很多数据。
+ */
+public final class HighlightRenderer {
+    private static final String FRAGMENT_SEPARATOR = "...";
+
+    private HighlightRenderer() {
+    }
+
+    /**
+     * @description 设置高亮并只返回includes中的字段
+     **/
+    public static SearchRequestBuilder prepare(SearchRequestBuilder request, HighlightBuilder highlight, String... includes) {
+        return request.highlighter(highlight).setFetchSource(includes, null);
+    }
+
+    /**
+     * @description 把合并后的json写入out
+     **/
+    public static void render(SearchHit hit, OutputStream out) throws IOException {
+        Map<String, HighlightField> highlights = hit.getHighlightFields();
+        BytesReference source = hit.getSourceRef();
+        Set<String> written = new HashSet<>();
+        XContentBuilder builder = new XContentBuilder(JsonXContent.jsonXContent, out);
+        builder.startObject();
+        if (source != null) {
+            try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY, source)) {
+                if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                    throw new IllegalArgumentException("source of [" + hit.getId() + "] is not an object");
+                }
+                while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                    String field = parser.currentName();
+                    HighlightField highlight = highlights.get(field);
+                    if (highlight == null) {
+                        builder.copyCurrentStructure(parser);
+                    } else {
+                        parser.nextToken();
+                        parser.skipChildren();
+                        builder.field(field, join(highlight.getFragments()));
+                        written.add(field);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, HighlightField> entry : highlights.entrySet()) {
+            if (!written.contains(entry.getKey())) {
+                builder.field(entry.getKey(), join(entry.getValue().getFragments()));
+            }
+        }
+        builder.endObject();
+        builder.flush();
+    }
+
+    /**
+     * @description 渲染成字符串, 主要用于打印
+     **/
+    public static String renderToString(SearchHit hit) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        render(hit, out);
+        return out.bytes().utf8ToString();
+    }
+
+    private static String join(Text[] fragments) {
+        if (fragments == null || fragments.length == 0) {
+            return "";
+        }
+        if (fragments.length == 1) {
+            return fragments[0].string();
+        }
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < fragments.length; i++) {
+            if (i > 0) {
+                joined.append(FRAGMENT_SEPARATOR);
+            }
+            joined.append(fragments[i].string());
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.es.search;
+
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 16:05
+ * @Description: 导出结果的接收方, 会被多个slice线程同时调用, 实现必须线程安全
+ */
+public interface HitSink {
+
+    /**
+     * @param slice 命中结果所在的slice编号
+     * @param hit   命中结果
+     */
+    void accept(int slice, SearchHit hit) throws IOException;
+}
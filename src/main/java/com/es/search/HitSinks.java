@@ -0,0 +1,48 @@
+package com.es.search;
+
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 16:10
+ * @Description: 常用的 {@link HitSink} 实现
+ */
+public final class HitSinks {
+    private static final int NEW_LINE = '\n';
+
+    private HitSinks() {
+    }
+
+    /**
+     * @description 每条命中结果的_source写成一行(NDJSON), 直接写字节, 不转换成String
+     **/
+    public static HitSink ndjson(final OutputStream out) {
+        return new HitSink() {
+            @Override
+            public void accept(int slice, SearchHit hit) throws IOException {
+                synchronized (out) {
+                    hit.getSourceRef().writeTo(out);
+                    out.write(NEW_LINE);
+                }
+            }
+        };
+    }
+
+    /**
+     * @description 写入另一个索引, id保持不变, 由BulkProcessor负责攒批和并发
+     **/
+    public static HitSink bulk(final BulkProcessor processor, final String index, final String type) {
+        return new HitSink() {
+            @Override
+            public void accept(int slice, SearchHit hit) {
+                processor.add(new IndexRequest(index, type, hit.getId()).source(hit.getSourceRef(), XContentType.JSON));
+            }
+        };
+    }
+}
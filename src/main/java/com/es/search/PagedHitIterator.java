@@ -0,0 +1,169 @@
+package com.es.search;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 14:30
+ * @Description: 分页拉取全部命中结果的迭代器
+ * <p>
+ * 第一次调用 {@link #hasNext()} 时才发出第一个请求; 每拿到一页, 如果还有剩余结果,
+ * 就立刻异步发出下一页的请求, 调用方消费当前页的同时下一页已经在路上了。
+ * 内存里最多只有当前页和正在预取的下一页, 可以用固定的内存遍历整个索引。
+ * <p>
+ * 用完(或者中途放弃)必须调用 {@link #close()}, scroll模式下会清理服务端的scroll上下文。
+ */
+public abstract class PagedHitIterator implements Iterator<SearchHit>, Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    public static final TimeValue DEFAULT_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private SearchHit[] page = new SearchHit[0];
+    private int position;
+    private ListenableActionFuture<SearchResponse> next;
+    private boolean started;
+    private boolean exhausted;
+    private boolean released;
+    private boolean closed;
+    private long totalHits = -1;
+    private long consumed;
+
+    /**
+     * @description 使用scroll遍历, 没有指定排序时按_doc排序, 这是scroll最快的方式
+     **/
+    public static PagedHitIterator scroll(Client client, SearchRequestBuilder request) {
+        return new ScrollHitIterator(client, request, DEFAULT_KEEP_ALIVE, DEFAULT_PAGE_SIZE);
+    }
+
+    public static PagedHitIterator scroll(Client client, SearchRequestBuilder request, TimeValue keepAlive, int pageSize) {
+        return new ScrollHitIterator(client, request, keepAlive, pageSize);
+    }
+
+    /**
+     * @description 使用search_after遍历, request必须已经设置了排序, 会自动追加_uid作为唯一的排序依据
+     **/
+    public static PagedHitIterator searchAfter(SearchRequestBuilder request) {
+        return new SearchAfterHitIterator(request, DEFAULT_PAGE_SIZE, SearchAfterHitIterator.DEFAULT_TIEBREAKER);
+    }
+
+    public static PagedHitIterator searchAfter(SearchRequestBuilder request, int pageSize, String tiebreaker) {
+        return new SearchAfterHitIterator(request, pageSize, tiebreaker);
+    }
+
+    /**
+     * @description 发出第一页的请求
+     **/
+    protected abstract ListenableActionFuture<SearchResponse> firstPage();
+
+    /**
+     * @description 根据上一页的结果发出下一页的请求
+     **/
+    protected abstract ListenableActionFuture<SearchResponse> nextPage(SearchResponse previous);
+
+    /**
+     * @description 释放服务端资源, pending为正在预取中的请求, 可能为null
+     **/
+    protected abstract void release(ListenableActionFuture<SearchResponse> pending);
+
+    /**
+     * @description 每收到一页时回调
+     **/
+    protected void pageReceived(SearchResponse response) {
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!closed && position >= page.length) {
+            if (exhausted) {
+                return false;
+            }
+            if (!started) {
+                started = true;
+                next = firstPage();
+            }
+            SearchResponse response = next.actionGet();
+            next = null;
+            onPage(response);
+        }
+        return !closed;
+    }
+
+    @Override
+    public SearchHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SearchHit hit = page[position];
+        // 及时释放已经消费过的hit, 只保留当前页剩余部分的引用
+        page[position++] = null;
+        return hit;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * @description 命中的总条数, 第一页返回之前为-1
+     **/
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @description 转换成Stream, 关闭Stream时会同时关闭迭代器
+     **/
+    public Stream<SearchHit> stream() {
+        Spliterator<SearchHit> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        page = new SearchHit[0];
+        if (started && !released) {
+            released = true;
+            release(next);
+        }
+        next = null;
+    }
+
+    private void onPage(SearchResponse response) {
+        page = response.getHits().getHits();
+        position = 0;
+        totalHits = response.getHits().getTotalHits();
+        consumed += page.length;
+        pageReceived(response);
+        if (page.length == 0 || consumed >= totalHits) {
+            // 已经取完, 不等close直接释放服务端资源
+            exhausted = true;
+            released = true;
+            release(null);
+        } else {
+            next = nextPage(response);
+        }
+    }
+}
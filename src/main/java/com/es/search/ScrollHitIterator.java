@@ -0,0 +1,83 @@
+package com.es.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 14:55
+ * @Description: 基于scroll的分页迭代器, 见 {@link PagedHitIterator#scroll}
+ */
+class ScrollHitIterator extends PagedHitIterator {
+    private final Client client;
+    private final SearchRequestBuilder request;
+    private final TimeValue keepAlive;
+    private String scrollId;
+
+    ScrollHitIterator(Client client, SearchRequestBuilder request, TimeValue keepAlive, int pageSize) {
+        this.client = client;
+        this.keepAlive = keepAlive;
+        this.request = request.setScroll(keepAlive).setSize(pageSize);
+        if (request.request().source() == null || request.request().source().sorts() == null
+                || request.request().source().sorts().isEmpty()) {
+            request.addSort("_doc", SortOrder.ASC);
+        }
+    }
+
+    @Override
+    protected ListenableActionFuture<SearchResponse> firstPage() {
+        return request.execute();
+    }
+
+    @Override
+    protected void pageReceived(SearchResponse response) {
+        scrollId = response.getScrollId();
+    }
+
+    @Override
+    protected ListenableActionFuture<SearchResponse> nextPage(SearchResponse previous) {
+        return client.prepareSearchScroll(scrollId).setScroll(keepAlive).execute();
+    }
+
+    @Override
+    protected void release(ListenableActionFuture<SearchResponse> pending) {
+        if (pending == null) {
+            clear(scrollId);
+            return;
+        }
+        // 预取还没回来, 等它回来之后再清理它返回的scroll上下文
+        pending.addListener(new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                clear(response.getScrollId());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                clear(scrollId);
+            }
+        });
+    }
+
+    private void clear(String id) {
+        if (id == null) {
+            return;
+        }
+        client.prepareClearScroll().addScrollId(id).execute(new ActionListener<ClearScrollResponse>() {
+            @Override
+            public void onResponse(ClearScrollResponse response) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // scroll上下文超过keepAlive后服务端也会自动清理
+            }
+        });
+    }
+}
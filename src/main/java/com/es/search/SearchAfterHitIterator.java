@@ -0,0 +1,46 @@
+package com.es.search;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 15:10
+ * @Description: 基于search_after的分页迭代器, 见 {@link PagedHitIterator#searchAfter}
+ * <p>
+ * 和scroll不同, search_after不占用服务端上下文, 每一页都是一次普通的查询,
+ * 能看到遍历过程中新写入的数据。排序必须唯一, 所以会追加tiebreaker字段。
+ */
+class SearchAfterHitIterator extends PagedHitIterator {
+    static final String DEFAULT_TIEBREAKER = "_uid";
+
+    private final SearchRequestBuilder request;
+
+    SearchAfterHitIterator(SearchRequestBuilder request, int pageSize, String tiebreaker) {
+        SearchSourceBuilder source = request.request().source();
+        if (source == null || source.sorts() == null || source.sorts().isEmpty()) {
+            throw new IllegalArgumentException("search_after requires an explicit sort");
+        }
+        this.request = request.setFrom(0).setSize(pageSize).addSort(tiebreaker, SortOrder.ASC);
+    }
+
+    @Override
+    protected ListenableActionFuture<SearchResponse> firstPage() {
+        return request.execute();
+    }
+
+    @Override
+    protected ListenableActionFuture<SearchResponse> nextPage(SearchResponse previous) {
+        SearchHit[] hits = previous.getHits().getHits();
+        return request.searchAfter(hits[hits.length - 1].getSortValues()).execute();
+    }
+
+    @Override
+    protected void release(ListenableActionFuture<SearchResponse> pending) {
+        // search_after没有服务端上下文, 正在预取的请求结果直接丢弃
+    }
+}
@@ -0,0 +1,55 @@
+package com.es.search;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugins.SearchPlugin;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/20 10:30
+ * @Description: 调用方传进来的查询在修改之前先深拷贝一份
+ * <p>
+ * SearchSourceBuilder自带的copyWithNewSlice是浅拷贝, 排序列表等还是共用的, 这里按传输协议序列化再读回来。
+ * 只认识es自带的查询和聚合, 插件提供的查询拷贝时会报错。
+ */
+final class SearchCopies {
+    private static final NamedWriteableRegistry REGISTRY = new NamedWriteableRegistry(
+            new SearchModule(Settings.EMPTY, true, Collections.<SearchPlugin>emptyList()).getNamedWriteables());
+
+    private SearchCopies() {
+    }
+
+    static SearchRequest copy(SearchRequest request) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            request.writeTo(out);
+            SearchRequest copy = new SearchRequest();
+            copy.readFrom(input(out));
+            return copy;
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to copy search request", e);
+        }
+    }
+
+    static SearchSourceBuilder copy(SearchSourceBuilder source) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            source.writeTo(out);
+            return new SearchSourceBuilder(input(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to copy search source", e);
+        }
+    }
+
+    private static StreamInput input(BytesStreamOutput out) throws IOException {
+        return new NamedWriteableAwareStreamInput(out.bytes().streamInput(), REGISTRY);
+    }
+}
@@ -0,0 +1,168 @@
+package com.es.search;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.text.Text;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 11:10
+ * @Description: 翻页游标, 把上一页最后一条的排序值编码成不透明的字符串
+ * <p>
+ * 游标里还带了查询(索引、类型、查询条件和排序)的指纹, 拿别的查询的游标来翻页会直接报错, 而不是返回错乱的结果。
+ * 字符串是URL安全的base64, 可以直接放在接口参数里。
+ * <p>
+ * 游标来自调用方, 不可信: 解码时先校验版本和指纹, 排序值的个数不能超过排序条件的个数,
+ * 只接受search_after支持的标量类型, 字符串长度不能超过剩余的字节数, 构造的游标不会引起大量内存分配。
+ */
+public final class SearchCursor {
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TEXT = 2;
+    private static final byte LONG = 3;
+    private static final byte INTEGER = 4;
+    private static final byte SHORT = 5;
+    private static final byte BYTE = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte FLOAT = 8;
+    private static final byte BOOLEAN = 9;
+
+    private SearchCursor() {
+    }
+
+    /**
+     * @param fingerprint 查询的指纹
+     * @param sortValues  上一页最后一条的排序值
+     */
+    public static String encode(int fingerprint, Object[] sortValues) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeVInt(FORMAT_VERSION);
+            out.writeInt(fingerprint);
+            out.writeVInt(sortValues.length);
+            for (Object value : sortValues) {
+                writeValue(out, value);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(BytesReference.toBytes(out.bytes()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("failed to encode cursor", e);
+        }
+    }
+
+    /**
+     * @param maxValues 排序值最多的个数, 即排序条件的个数
+     * @description 解码游标, 指纹不一致或者格式错误时抛出IllegalArgumentException
+     **/
+    public static Object[] decode(int fingerprint, int maxValues, String cursor) {
+        try {
+            StreamInput in = new BytesArray(Base64.getUrlDecoder().decode(cursor)).streamInput();
+            int version = in.readVInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("unsupported cursor version [" + version + "]");
+            }
+            if (in.readInt() != fingerprint) {
+                throw new IllegalArgumentException("cursor does not belong to this query");
+            }
+            int count = in.readVInt();
+            if (count < 1 || count > maxValues) {
+                throw new IllegalArgumentException("cursor has [" + count + "] sort values, expected at most [" + maxValues + "]");
+            }
+            Object[] sortValues = new Object[count];
+            for (int i = 0; i < count; i++) {
+                sortValues[i] = readValue(in);
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("trailing bytes in cursor");
+            }
+            return sortValues;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("invalid cursor [" + cursor + "]", e);
+        }
+    }
+
+    private static void writeValue(StreamOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeByteArray(((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Text) {
+            out.writeByte(TEXT);
+            out.writeByteArray(BytesReference.toBytes(((Text) value).bytes()));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            throw new IllegalArgumentException("unsupported sort value type [" + value.getClass().getName() + "]");
+        }
+    }
+
+    private static Object readValue(StreamInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TEXT:
+                return new Text(new BytesArray(readBytes(in)));
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            default:
+                throw new IllegalArgumentException("unsupported sort value type [" + type + "]");
+        }
+    }
+
+    /**
+     * @description 先检查长度再分配, 长度不能超过游标剩余的字节数
+     **/
+    private static byte[] readBytes(StreamInput in) throws IOException {
+        int length = in.readVInt();
+        if (length < 0 || length > in.available()) {
+            throw new IllegalArgumentException("sort value length [" + length + "] exceeds cursor size");
+        }
+        byte[] bytes = new byte[length];
+        in.readBytes(bytes, 0, length);
+        return bytes;
+    }
+}
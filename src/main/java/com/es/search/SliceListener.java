@@ -0,0 +1,17 @@
+package com.es.search;
+
+import java.io.IOException;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 22:30
+ * @Description: slice导出完成的回调, 在该slice的线程上调用
+ */
+public interface SliceListener {
+
+    /**
+     * @param slice 完成的slice编号
+     * @param hits  该slice本次导出的条数
+     */
+    void onSliceDone(int slice, long hits) throws IOException;
+}
@@ -0,0 +1,197 @@
+package com.es.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/18 16:20
+ * @Description: 并行的sliced scroll导出
+ * <p>
+ * 把一个查询拆成N个scroll slice, 每个slice在独立的线程上用 {@link PagedHitIterator} 拉取,
+ * 所有结果汇总到同一个 {@link HitSink}。slice数一般设置为索引的分片数或者CPU核数。
+ * <pre>
+ * long total = new SlicedScrollExporter(client, "mytest")
+ *         .query(QueryBuilders.matchAllQuery())
+ *         .slices(8)
+ *         .export(HitSinks.ndjson(out));
+ * </pre>
+ */
+public class SlicedScrollExporter {
+    private static final Logger LOGGER = LogManager.getLogger(SlicedScrollExporter.class);
+    private static final long PROGRESS_LOG_INTERVAL = 10000;
+
+    private final Client client;
+    private final String[] indices;
+    private String[] types = new String[0];
+    private SearchSourceBuilder source = new SearchSourceBuilder();
+    private int slices = Runtime.getRuntime().availableProcessors();
+    private int pageSize = PagedHitIterator.DEFAULT_PAGE_SIZE;
+    private TimeValue keepAlive = PagedHitIterator.DEFAULT_KEEP_ALIVE;
+    private Set<Integer> skippedSlices = Collections.emptySet();
+    private SliceListener sliceListener;
+
+    private volatile AtomicLongArray progress = new AtomicLongArray(0);
+
+    public SlicedScrollExporter(Client client, String... indices) {
+        this.client = client;
+        this.indices = indices;
+    }
+
+    public SlicedScrollExporter types(String... types) {
+        this.types = types;
+        return this;
+    }
+
+    public SlicedScrollExporter query(QueryBuilder query) {
+        this.source.query(query);
+        return this;
+    }
+
+    /**
+     * @description 指定完整的查询, 会覆盖之前设置的query。导出时使用它的拷贝, 不会修改传入的source
+     **/
+    public SlicedScrollExporter source(SearchSourceBuilder source) {
+        this.source = source;
+        return this;
+    }
+
+    public SlicedScrollExporter slices(int slices) {
+        if (slices < 1) {
+            throw new IllegalArgumentException("slices must be >= 1 but was " + slices);
+        }
+        this.slices = slices;
+        return this;
+    }
+
+    public SlicedScrollExporter pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public SlicedScrollExporter keepAlive(TimeValue keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * @description 跳过已经处理过的slice, 用于中断后继续导出
+     **/
+    public SlicedScrollExporter skipSlices(Collection<Integer> slices) {
+        this.skippedSlices = new HashSet<>(slices);
+        return this;
+    }
+
+    /**
+     * @description 每个slice全部交给sink之后回调
+     **/
+    public SlicedScrollExporter sliceListener(SliceListener listener) {
+        this.sliceListener = listener;
+        return this;
+    }
+
+    /**
+     * @description 执行导出, 阻塞到所有slice完成, 返回导出的总条数。任意一个slice失败时其余slice会被取消
+     **/
+    public long export(final HitSink sink) throws IOException {
+        // 调用方传进来的source可能还要复用, 排序和分页大小设置在拷贝上
+        final SearchSourceBuilder exportSource = SearchCopies.copy(source);
+        if (exportSource.sorts() == null || exportSource.sorts().isEmpty()) {
+            // 各个slice的SearchSourceBuilder是浅拷贝, 排序要在拷贝之前设置好
+            exportSource.sort("_doc", SortOrder.ASC);
+        }
+        progress = new AtomicLongArray(slices);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, slices - skippedSlices.size()));
+        CompletionService<Long> completion = new ExecutorCompletionService<>(executor);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < slices; i++) {
+                if (skippedSlices.contains(i)) {
+                    continue;
+                }
+                final int slice = i;
+                submitted++;
+                completion.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        return exportSlice(slice, exportSource, sink);
+                    }
+                });
+            }
+            long total = 0;
+            // 按完成顺序收集结果, 任意一个slice失败可以立刻感知
+            for (int i = 0; i < submitted; i++) {
+                total += completion.take().get();
+            }
+            LOGGER.info("exported {} hits from {} with {} slices", total, indices, slices);
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("export of " + String.join(",", indices) + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @description 每个slice已经导出的条数
+     **/
+    public long[] getProgress() {
+        AtomicLongArray current = progress;
+        long[] snapshot = new long[current.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = current.get(i);
+        }
+        return snapshot;
+    }
+
+    private long exportSlice(int slice, SearchSourceBuilder exportSource, HitSink sink) throws IOException {
+        SearchSourceBuilder sliceSource = slices > 1
+                ? exportSource.copyWithNewSlice(new SliceBuilder(slice, slices)) : exportSource;
+        long count = 0;
+        try (PagedHitIterator hits = PagedHitIterator.scroll(client,
+                client.prepareSearch(indices).setTypes(types).setSource(sliceSource), keepAlive, pageSize)) {
+            while (hits.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("slice [" + slice + "] cancelled");
+                }
+                SearchHit hit = hits.next();
+                sink.accept(slice, hit);
+                count = progress.incrementAndGet(slice);
+                if (count % PROGRESS_LOG_INTERVAL == 0) {
+                    LOGGER.debug("slice [{}/{}] exported {} of {}", slice, slices, count, hits.getTotalHits());
+                }
+            }
+        }
+        LOGGER.info("slice [{}/{}] finished, {} hits", slice, slices, count);
+        if (sliceListener != null) {
+            sliceListener.onSliceDone(slice, count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,385 @@
+package com.es.spool;
+
+import com.entry.Product;
+import com.es.codec.ProductCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 18:40
+ * @Description: 先落本地磁盘再异步写入es的Product写入队列
+ * <p>
+ * index/update/delete只追加到内存映射的 {@link SpoolLog}, 不等待集群, 集群变慢或者不可用时写入方不受影响。
+ * 后台线程按顺序把日志读成bulk发送, 整个bulk成功后才推进ack位置; 请求失败, 或者有条目因为集群暂时不可用
+ * 而失败(429、503等, 见 {@link #retryable})时按指数退避重试整个bulk, 其他条目级别的失败(比如mapping冲突)记录日志后跳过。
+ * 解析不了或者校验不通过的记录同样跳过, 计入 {@link #getFailed()}。重启后从ack位置继续, 已确认的操作不会重发,
+ * 未确认的操作可能重发一次, index和delete是幂等的, 局部更新重复执行结果也一样。
+ * <p>
+ * 只有队列满了(segment数达到上限)写入才会阻塞, 最多阻塞maxBlock。
+ */
+public class ProductSpool implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(ProductSpool.class);
+    private static final TimeValue MAX_RETRY_DELAY = TimeValue.timeValueSeconds(30);
+
+    private static final byte INDEX = 0;
+    private static final byte UPDATE = 1;
+    private static final byte DELETE = 2;
+
+    private final Client client;
+    private final SpoolConfig config;
+    private final SpoolLog log;
+    private final Thread drainer;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ProductSpool(Client client, SpoolConfig config) throws IOException {
+        this.client = client;
+        this.config = config;
+        this.log = new SpoolLog(config.getDirectory(), (int) config.getSegmentSize().getBytes(), config.getMaxSegments());
+        this.drainer = EsExecutors.daemonThreadFactory("product-spool").newThread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+        drainer.start();
+    }
+
+    /**
+     * @description 新增或覆盖一条数据
+     **/
+    public void index(String index, String type, String id, Product product) {
+        append(INDEX, index, type, id, ProductCodec.encode(product));
+    }
+
+    /**
+     * @description 局部更新, product中为null的字段不会被更新
+     **/
+    public void update(String index, String type, String id, Product product) {
+        append(UPDATE, index, type, id, ProductCodec.encode(product));
+    }
+
+    public void delete(String index, String type, String id) {
+        append(DELETE, index, type, id, null);
+    }
+
+    /**
+     * @description 已写入但还没有被es确认的字节数
+     **/
+    public long getPendingBytes() {
+        return log.writeOffset() - log.ackOffset();
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getAcknowledged() {
+        return acknowledged.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @description 等待当前写入的数据全部被确认, 超时返回false
+     **/
+    public synchronized boolean awaitDrained(TimeValue timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.nanos();
+        while (getPendingBytes() > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @description 停止后台线程, 没有发送的数据留在磁盘上, 下次打开同一个目录时继续发送
+     **/
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    private void append(byte op, String index, String type, String id, BytesReference source) {
+        byte[] record = encode(op, index, type, id, source);
+        long deadline = System.nanoTime() + config.getMaxBlock().nanos();
+        synchronized (this) {
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new IllegalStateException("spool is closed");
+                    }
+                    if (log.append(record) >= 0) {
+                        appended.incrementAndGet();
+                        notifyAll();
+                        return;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new EsRejectedExecutionException("spool [" + config.getDirectory() + "] is full");
+                    }
+                    // 队列满了, 等后台线程确认数据并删除segment
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to append to spool " + config.getDirectory(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EsRejectedExecutionException("interrupted while waiting for spool space");
+            }
+        }
+    }
+
+    private void drain() {
+        long delay = config.getRetryInitialDelay().millis();
+        long lastSync = System.nanoTime();
+        List<Long> offsets = new ArrayList<>();
+        while (!closed) {
+            try {
+                if (System.nanoTime() - lastSync >= config.getSyncInterval().nanos()) {
+                    log.sync();
+                    lastSync = System.nanoTime();
+                }
+                offsets.clear();
+                List<byte[]> records = log.read(log.ackOffset(), config.getBulkActions(), offsets);
+                long end = offsets.get(offsets.size() - 1);
+                if (records.isEmpty()) {
+                    synchronized (this) {
+                        if (end > log.ackOffset()) {
+                            // 只跨过了segment末尾的结束标记
+                            log.ack(end);
+                            notifyAll();
+                        } else if (!closed && log.writeOffset() == log.ackOffset()) {
+                            wait(config.getSyncInterval().millis());
+                        }
+                    }
+                    continue;
+                }
+                if (send(records)) {
+                    synchronized (this) {
+                        log.ack(end);
+                        notifyAll();
+                    }
+                    acknowledged.addAndGet(records.size());
+                    delay = config.getRetryInitialDelay().millis();
+                } else {
+                    retries.incrementAndGet();
+                    sleep(delay);
+                    delay = Math.min(delay * 2, MAX_RETRY_DELAY.millis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 集群不可用等情况, 退避后重试同一批数据
+                LOGGER.warn("failed to drain spool [{}], retrying in {}ms", config.getDirectory(), delay, e);
+                retries.incrementAndGet();
+                try {
+                    sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY.millis());
+            }
+        }
+    }
+
+    /**
+     * @description 发送一批操作, 需要重试时返回false
+     * <p>
+     * 解析不了或者校验不通过的记录重发也不会成功, 记入failed后跳过, 不能让一条坏记录卡住整个队列。
+     * 整个bulk因为请求本身的问题(4xx)被拒绝时逐条重发, 只跳过有问题的那一条。
+     * 集群不可用等其他异常抛给drain退避重试。
+     **/
+    private boolean send(List<byte[]> records) {
+        BulkRequest bulk = new BulkRequest();
+        List<byte[]> valid = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            DocWriteRequest<?> request = decodeValid(record);
+            if (request != null) {
+                bulk.add(request);
+                valid.add(record);
+            }
+        }
+        if (valid.isEmpty()) {
+            return true;
+        }
+        BulkResponse response;
+        try {
+            response = client.bulk(bulk).actionGet();
+        } catch (RuntimeException e) {
+            if (!permanent(e)) {
+                throw e;
+            }
+            if (valid.size() == 1) {
+                skip(bulk.requests().get(0).toString(), e);
+                return true;
+            }
+            for (byte[] record : valid) {
+                if (!send(Collections.singletonList(record))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!response.hasFailures()) {
+            return true;
+        }
+        int skipped = 0;
+        for (BulkItemResponse item : response) {
+            if (item.isFailed() && retryable(item.getFailure().getStatus())) {
+                LOGGER.debug("bulk item failed with [{}], retrying batch of {}", item.getFailure().getStatus(), records.size());
+                return false;
+            }
+            if (item.isFailed()) {
+                skipped++;
+            }
+        }
+        failed.addAndGet(skipped);
+        LOGGER.warn("skipped {} failed operations from spool [{}]: {}", skipped, config.getDirectory(), response.buildFailureMessage());
+        return true;
+    }
+
+    /**
+     * @description 解析记录并做客户端校验(比如id超过512字节), 失败时跳过这条记录, 返回null
+     **/
+    private DocWriteRequest<?> decodeValid(byte[] record) {
+        DocWriteRequest<?> request;
+        try {
+            request = decode(record);
+        } catch (IOException | RuntimeException e) {
+            skip("record of " + record.length + " bytes", e);
+            return null;
+        }
+        ActionRequestValidationException validation = ((ActionRequest) request).validate();
+        if (validation != null) {
+            skip(request.toString(), validation);
+            return null;
+        }
+        return request;
+    }
+
+    private void skip(String operation, Exception e) {
+        failed.incrementAndGet();
+        LOGGER.warn("skipped invalid operation {} from spool [{}]", operation, config.getDirectory(), e);
+    }
+
+    /**
+     * @description 请求本身有问题导致的失败(4xx, 429除外), 重发也不会成功
+     **/
+    static boolean permanent(Exception e) {
+        RestStatus status = ExceptionsHelper.status(ExceptionsHelper.unwrapCause(e));
+        return status.getStatus() >= 400 && status.getStatus() < 500 && !retryable(status);
+    }
+
+    /**
+     * @description 集群暂时不可用导致的失败, 整批退避后重发; 其他失败(mapping错误、解析错误等)重发也不会成功, 跳过
+     * <p>
+     * 503包括主分片未分配、节点宕机时的UnavailableShardsException, 正是spool要扛住的情况。
+     **/
+    static boolean retryable(RestStatus status) {
+        switch (status) {
+            case TOO_MANY_REQUESTS:
+            case BAD_GATEWAY:
+            case SERVICE_UNAVAILABLE:
+            case GATEWAY_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void sleep(long millis) throws InterruptedException {
+        synchronized (this) {
+            if (!closed) {
+                wait(millis);
+            }
+        }
+    }
+
+    static byte[] encode(byte op, String index, String type, String id, BytesReference source) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeByte(op);
+            out.writeString(index);
+            out.writeString(type);
+            out.writeString(id);
+            if (op != DELETE) {
+                out.writeBytesReference(source);
+            }
+            return BytesReference.toBytes(out.bytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static DocWriteRequest<?> decode(byte[] record) throws IOException {
+        StreamInput in = new BytesArray(record).streamInput();
+        byte op = in.readByte();
+        String index = in.readString();
+        String type = in.readString();
+        String id = in.readString();
+        switch (op) {
+            case INDEX:
+                return new IndexRequest(index, type, id).source(in.readBytesReference(), ProductCodec.CONTENT_TYPE);
+            case UPDATE:
+                return new UpdateRequest(index, type, id)
+                        .doc(new IndexRequest().source(in.readBytesReference(), ProductCodec.CONTENT_TYPE));
+            case DELETE:
+                return new DeleteRequest(index, type, id);
+            default:
+                throw new IllegalStateException("unknown spool operation [" + op + "]");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.es.spool;
+
+import lombok.Builder;
+import lombok.Value;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.nio.file.Path;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 17:50
+ * @Description: 本地落盘队列的参数, 总容量为 segmentSize * maxSegments
+ */
+@Value
+@Builder
+public class SpoolConfig {
+    /**
+     * segment文件和ack文件所在的目录, 同一个目录只能被一个ProductSpool使用
+     */
+    private Path directory;
+    @Builder.Default
+    private ByteSizeValue segmentSize = new ByteSizeValue(64, ByteSizeUnit.MB);
+    @Builder.Default
+    private int maxSegments = 16;
+    /**
+     * 每个bulk最多包含的操作数
+     */
+    @Builder.Default
+    private int bulkActions = 1000;
+    /**
+     * 队列满时写入最多阻塞的时间, 超时抛出EsRejectedExecutionException
+     */
+    @Builder.Default
+    private TimeValue maxBlock = TimeValue.timeValueMinutes(1);
+    /**
+     * 把写入的数据刷到磁盘的间隔
+     */
+    @Builder.Default
+    private TimeValue syncInterval = TimeValue.timeValueSeconds(1);
+    /**
+     * bulk失败后第一次重试的等待时间, 之后每次翻倍, 最多30秒
+     */
+    @Builder.Default
+    private TimeValue retryInitialDelay = TimeValue.timeValueMillis(500);
+}
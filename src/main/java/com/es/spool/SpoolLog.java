@@ -0,0 +1,291 @@
+package com.es.spool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * @Author: lsp
+ * @Date: 2026/10/19 18:00
+ * @Description: 基于内存映射文件的追加日志, {@link ProductSpool} 的存储层
+ * <p>
+ * 日志由固定大小的segment文件组成, 文件名是segment起始位置(全局字节偏移)。每条记录的格式为
+ * [int 长度][int crc32][内容], 剩余空间放不下下一条记录时写入-1作为结束标记, 从下一个segment继续。
+ * 已确认的位置保存在单独的ack文件里, 完全在ack之前的segment会被删除。
+ * <p>
+ * 重新打开时从最后一个segment的开头扫描, 遇到长度为0或者crc不对的记录就认为是写入位置,
+ * 之后的内容清零, 进程崩溃时写了一半的记录会被丢弃。写入只保证进程崩溃不丢, 操作系统崩溃需要依赖 {@link #sync()}。
+ * <p>
+ * 写入需要外部加锁, 读取可以和写入并发, 只能读到 {@link #writeOffset()} 之前的数据。
+ */
+class SpoolLog implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(SpoolLog.class);
+
+    static final int HEADER_SIZE = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String ACK_FILE = "spool.ack";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final FileChannel ackChannel;
+    private final ByteBuffer ackBuffer = ByteBuffer.allocate(8);
+
+    private volatile long writeOffset;
+    private volatile long ackOffset;
+    /**
+     * 上次 {@link #sync()} 时的写入位置, 从它所在的segment开始都可能还没刷盘
+     */
+    private long syncedOffset;
+
+    SpoolLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        this.ackChannel = FileChannel.open(directory.resolve(ACK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ackOffset = readAck();
+        recover();
+    }
+
+    /**
+     * @description 追加一条记录, 当前segment放不下时换新的segment, segment数量达到上限时返回-1
+     **/
+    long append(byte[] record) throws IOException {
+        int length = HEADER_SIZE + record.length;
+        if (length > segmentSize - 4) {
+            throw new IllegalArgumentException("record of [" + record.length + "] bytes exceeds segment size [" + segmentSize + "]");
+        }
+        long offset = writeOffset;
+        Segment segment = segmentFor(offset);
+        int position = segment == null ? 0 : (int) (offset - segment.base);
+        if (segment == null || position + length > segmentSize - 4) {
+            if (segmentCount() >= maxSegments) {
+                return -1;
+            }
+            if (segment != null) {
+                segment.buffer.putInt(position, END_OF_SEGMENT);
+                offset = segment.base + segmentSize;
+            }
+            segment = createSegment(offset);
+            position = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(position + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(record);
+        // 长度最后写, 读取方看到长度时内容已经完整
+        segment.buffer.putInt(position, record.length);
+        writeOffset = offset + length;
+        return offset;
+    }
+
+    /**
+     * @description 从from开始读取最多maxRecords条记录, 返回的位置列表比记录多一个, 最后一个是读取结束的位置
+     **/
+    List<byte[]> read(long from, int maxRecords, List<Long> offsets) {
+        List<byte[]> records = new ArrayList<>();
+        long offset = from;
+        long end = writeOffset;
+        while (records.size() < maxRecords && offset < end) {
+            Segment segment;
+            synchronized (segments) {
+                segment = segments.floorEntry(offset) == null ? null : segments.floorEntry(offset).getValue();
+            }
+            if (segment == null) {
+                throw new IllegalStateException("no segment contains offset [" + offset + "]");
+            }
+            int position = (int) (offset - segment.base);
+            int length = position + 4 > segmentSize ? END_OF_SEGMENT : segment.buffer.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                offset = segment.base + segmentSize;
+                continue;
+            }
+            byte[] record = new byte[length];
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(record);
+            offsets.add(offset);
+            records.add(record);
+            offset += HEADER_SIZE + length;
+        }
+        offsets.add(offset);
+        return records;
+    }
+
+    /**
+     * @description 确认offset之前的记录已经处理完, 删除不再需要的segment
+     **/
+    void ack(long offset) throws IOException {
+        ackBuffer.clear();
+        ackBuffer.putLong(0, offset);
+        ackChannel.write(ackBuffer, 0);
+        ackChannel.force(false);
+        ackOffset = offset;
+        synchronized (segments) {
+            while (segments.size() > 1 && segments.firstKey() + segmentSize <= offset) {
+                Segment segment = segments.remove(segments.firstKey());
+                // 映射在GC时释放, linux下删除已映射的文件没有问题
+                Files.deleteIfExists(segment.path);
+            }
+        }
+    }
+
+    /**
+     * @description 把已写入的数据刷到磁盘
+     * <p>
+     * 两次sync之间可能已经换了好几个segment, 从上次sync位置所在的segment开始全部刷一遍, 不能只刷最后一个。
+     **/
+    synchronized void sync() {
+        long target = writeOffset;
+        List<Segment> dirty;
+        synchronized (segments) {
+            Long from = segments.floorKey(syncedOffset);
+            dirty = new ArrayList<>((from == null ? segments : segments.tailMap(from, true)).values());
+        }
+        for (Segment segment : dirty) {
+            segment.buffer.force();
+        }
+        syncedOffset = target;
+    }
+
+    long writeOffset() {
+        return writeOffset;
+    }
+
+    long ackOffset() {
+        return ackOffset;
+    }
+
+    int segmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        ackChannel.close();
+        synchronized (segments) {
+            segments.clear();
+        }
+    }
+
+    private long readAck() throws IOException {
+        ackBuffer.clear();
+        if (ackChannel.read(ackBuffer, 0) < 8) {
+            return 0;
+        }
+        return ackBuffer.getLong(0);
+    }
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long base = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                if (base + segmentSize <= ackOffset) {
+                    Files.delete(file);
+                } else {
+                    segments.put(base, new Segment(base, file, map(file)));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            writeOffset = ackOffset;
+            return;
+        }
+        Segment last = segments.lastEntry().getValue();
+        int position = 0;
+        while (position + HEADER_SIZE <= segmentSize - 4) {
+            int length = last.buffer.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                // 结束标记已经写入, 但下一个segment还没创建
+                writeOffset = last.base + segmentSize;
+                return;
+            }
+            if (length <= 0 || position + HEADER_SIZE + length > segmentSize - 4 || !crcMatches(last, position, length)) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+        // 清掉写了一半的记录, 以免之后的写入和旧数据拼在一起
+        for (int i = position; i < segmentSize; i++) {
+            last.buffer.put(i, (byte) 0);
+        }
+        writeOffset = Math.max(last.base + position, ackOffset);
+        LOGGER.info("recovered spool [{}], ack [{}], write [{}], {} segments", directory, ackOffset, writeOffset, segments.size());
+    }
+
+    private static boolean crcMatches(Segment segment, int position, int length) {
+        byte[] record = new byte[length];
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(position + HEADER_SIZE);
+        buffer.get(record);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, length);
+        return (int) crc.getValue() == segment.buffer.getInt(position + 4);
+    }
+
+    private Segment segmentFor(long offset) {
+        synchronized (segments) {
+            if (segments.isEmpty()) {
+                return null;
+            }
+            Segment last = segments.lastEntry().getValue();
+            return offset < last.base + segmentSize ? last : null;
+        }
+    }
+
+    private Segment createSegment(long base) throws IOException {
+        Path file = directory.resolve(String.format(Locale.ROOT, "%020d%s", base, SEGMENT_SUFFIX));
+        Segment segment = new Segment(base, file, map(file));
+        synchronized (segments) {
+            segments.put(base, segment);
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在channel关闭后依然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final MappedByteBuffer buffer;
+
+        Segment(long base, Path path, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
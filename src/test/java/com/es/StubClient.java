@@ -0,0 +1,59 @@
+package com.es;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.client.support.AbstractClient;
+import org.elasticsearch.common.settings.Settings;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 不连集群的client, 请求交给 {@link Handler} 处理, 记录收到的请求和是否被关闭
+ */
+public class StubClient extends AbstractClient {
+
+    public interface Handler {
+        /**
+         * 可以同步或者之后再调用listener, 直接抛出异常相当于client同步失败
+         */
+        void handle(ActionRequest request, ActionListener<ActionResponse> listener);
+    }
+
+    private final Handler handler;
+    private final List<ActionRequest> requests = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public StubClient(Handler handler) {
+        super(Settings.EMPTY, null);
+        this.handler = handler;
+    }
+
+    public List<ActionRequest> requests() {
+        return requests;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected <Request extends ActionRequest, Response extends ActionResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+    void doExecute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+        if (closed) {
+            throw new IllegalStateException("client is closed");
+        }
+        requests.add(request);
+        handler.handle(request, (ActionListener) listener);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.es.aggregation;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AggregationPlannerTest {
+
+    @Test
+    public void collapsesMetricsOnSameFieldIntoStats() {
+        MetricsQuery query = new MetricsQuery("bank").types("account")
+                .count("cnt")
+                .min("minAge", "age")
+                .min("minSalary", "balance")
+                .avg("avgSalary", "balance");
+        SearchSourceBuilder source = AggregationPlanner.plan(query);
+
+        assertEquals(0, source.size());
+        List<AggregationBuilder> aggregations = source.aggregations().getAggregatorFactories();
+        assertEquals(2, aggregations.size());
+        assertTrue(aggregations.get(0) instanceof MinAggregationBuilder);
+        assertTrue(aggregations.get(1) instanceof StatsAggregationBuilder);
+        assertEquals("stats_balance", aggregations.get(1).getName());
+    }
+
+    @Test
+    public void movesExactMatchClausesToFilter() {
+        BoolQueryBuilder original = QueryBuilders.boolQuery()
+                .must(QueryBuilders.termQuery("gender.keyword", "F"))
+                .must(QueryBuilders.matchQuery("address", "lane"))
+                .mustNot(QueryBuilders.rangeQuery("age").lt(20));
+        BoolQueryBuilder rewritten = (BoolQueryBuilder) AggregationPlanner.toFilterContext(original);
+
+        assertEquals(1, rewritten.must().size());
+        assertEquals("address", ((MatchQueryBuilder) rewritten.must().get(0)).fieldName());
+        assertEquals(1, rewritten.filter().size());
+        assertEquals(1, rewritten.mustNot().size());
+    }
+
+    @Test
+    public void wrapsTopLevelTermInFilter() {
+        BoolQueryBuilder rewritten = (BoolQueryBuilder) AggregationPlanner.toFilterContext(
+                QueryBuilders.termQuery("gender.keyword", "F"));
+        assertTrue(rewritten.must().isEmpty());
+        assertEquals(1, rewritten.filter().size());
+    }
+}
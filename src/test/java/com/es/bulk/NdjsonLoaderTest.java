@@ -0,0 +1,130 @@
+package com.es.bulk;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NdjsonLoaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void splitsAtLineStarts() throws Exception {
+        // 每行10个字节
+        Path file = write("{\"a\":123}\n{\"b\":456}\n{\"c\":789}\n{\"d\":000}\n");
+        assertArrayEquals(new long[]{0, 20, 30, 40}, boundaries(file, 15));
+        assertArrayEquals(new long[]{0, 10, 20, 30, 40}, boundaries(file, 10));
+        assertArrayEquals(new long[]{0, 40}, boundaries(file, 100));
+    }
+
+    @Test
+    public void longLineSpansSeveralChunks() throws Exception {
+        Path file = write("{\"a\":\"0123456789012345678901234567890\"}\n{}\n{}");
+        assertArrayEquals(new long[]{0, 40, 43, 45}, boundaries(file, 3));
+    }
+
+    @Test
+    public void noTrailingNewline() throws Exception {
+        Path file = write("{}\n{}");
+        assertArrayEquals(new long[]{0, 3, 5}, boundaries(file, 2));
+        assertArrayEquals(new long[]{0, 0}, boundaries(write(""), 2));
+    }
+
+    @Test
+    public void reportsOffsetsOfItemsRejectedAfterRetry() throws Exception {
+        // 每行10个字节: 第1行格式错误, "r"第一次429重发后成功, "x"第一次429重发后400, "m"直接400, "t"一直429
+        Path file = write("{\"k\":\"o\"}\n"
+                + "garbage!!\n"
+                + "{\"k\":\"r\"}\n"
+                + "{\"k\":\"x\"}\n"
+                + "{\"k\":\"m\"}\n"
+                + "{\"k\":\"t\"}\n"
+                + "{\"k\":\"o\"}\n");
+        ScriptedSender sender = new ScriptedSender();
+        NdjsonLoader.Result result = new NdjsonLoader(sender, "mytest", "product")
+                .workers(1)
+                .bulk(BulkConfig.builder().retryInitialDelay(TimeValue.timeValueMillis(1)).maxRetries(2).build())
+                .load(file);
+
+        assertEquals(7, result.getLines());
+        assertEquals(3, result.getIndexed());
+        assertEquals(4, result.getRejected());
+        // r和x各重发一次, t重发两次
+        assertEquals(4, result.getRetries());
+        Map<Long, String> rejections = new HashMap<>();
+        for (NdjsonLoader.Rejection rejection : result.getRejections()) {
+            rejections.put(rejection.getOffset(), rejection.getReason());
+        }
+        assertEquals("not a json object", rejections.get(10L));
+        assertTrue(rejections.get(30L), rejections.get(30L).contains("bad x"));
+        assertTrue(rejections.get(40L), rejections.get(40L).contains("bad m"));
+        assertTrue(rejections.get(50L), rejections.get(50L).contains("rejected t"));
+    }
+
+    /**
+     * 按文档内容和第几次发送决定每个条目的结果
+     */
+    private static class ScriptedSender implements NdjsonLoader.BulkSender {
+        private final Set<String> seen = new HashSet<>();
+
+        @Override
+        public BulkResponse bulk(BulkRequest request) {
+            List<DocWriteRequest> requests = request.requests();
+            BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+            for (int i = 0; i < items.length; i++) {
+                String key = ((IndexRequest) requests.get(i)).source().utf8ToString().substring(6, 7);
+                boolean first = seen.add(key);
+                if (key.equals("t") || (first && (key.equals("r") || key.equals("x")))) {
+                    items[i] = failure(i, new EsRejectedExecutionException("rejected " + key));
+                } else if (key.equals("x") || key.equals("m")) {
+                    items[i] = failure(i, new IllegalArgumentException("bad " + key));
+                } else {
+                    items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                            new IndexResponse(new ShardId("mytest", "_na_", 0), "product", String.valueOf(i), 1, true));
+                }
+            }
+            return new BulkResponse(items, 1);
+        }
+
+        private static BulkItemResponse failure(int i, Exception e) {
+            return new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                    new BulkItemResponse.Failure("mytest", "product", null, e));
+        }
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static long[] boundaries(Path file, long chunkSize) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return NdjsonLoader.boundaries(channel, chunkSize);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.es.bulk;
+
+import com.es.cache.DocKey;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class UpdateCoalescerTest {
+
+    private static Map<String, Object> doc(Object... kv) {
+        Map<String, Object> doc = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) {
+            doc.put((String) kv[i], kv[i + 1]);
+        }
+        return doc;
+    }
+
+    @Test
+    public void laterFieldsWin() {
+        UpdateCoalescer.PendingUpdate update = new UpdateCoalescer.PendingUpdate(doc("price", 10, "stock", 5), null);
+        update.merge(doc("price", 12), null);
+        update.merge(doc("name", "kafka"), null);
+        assertEquals(doc("price", 12, "stock", 5, "name", "kafka"), update.doc);
+        assertNull(update.upsert);
+    }
+
+    @Test
+    public void nestedObjectsMergeWithoutTouchingCallerMaps() {
+        Map<String, Object> first = doc("spec", doc("color", "red", "size", "L"));
+        UpdateCoalescer.PendingUpdate update = new UpdateCoalescer.PendingUpdate(first, null);
+        update.merge(doc("spec", doc("size", "XL")), null);
+        assertEquals(doc("spec", doc("color", "red", "size", "XL")), update.doc);
+        assertEquals(doc("color", "red", "size", "L"), first.get("spec"));
+    }
+
+    @Test
+    public void updatesAfterUpsertApplyToInsertedDocument() {
+        UpdateCoalescer.PendingUpdate update = new UpdateCoalescer.PendingUpdate(doc("stock", 1), doc("stock", 1, "name", "kafka"));
+        update.merge(doc("stock", 2), doc("stock", 99));
+        assertEquals(doc("stock", 2, "name", "kafka"), update.upsert);
+        assertEquals(doc("stock", 2), update.doc);
+    }
+
+    @Test
+    public void firstUpsertIsAdoptedByPlainUpdate() {
+        UpdateCoalescer.PendingUpdate update = new UpdateCoalescer.PendingUpdate(doc("price", 10), null);
+        update.merge(doc("stock", 3), doc("stock", 3));
+        UpdateRequest request = update.toRequest(new DocKey("mytest", "product", "1"));
+        assertEquals(doc("price", 10, "stock", 3), request.doc().sourceAsMap());
+        assertEquals(Collections.<String, Object>singletonMap("stock", 3), request.upsertRequest().sourceAsMap());
+    }
+}
@@ -0,0 +1,74 @@
+package com.es.codec;
+
+import com.entry.Product;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HitMapperTest {
+
+    static class Sku {
+        @EsId
+        String id;
+        @EsField("sku_name")
+        String name;
+        @EsField(docValue = true)
+        long price;
+        Integer stock;
+        boolean onSale;
+        transient String display;
+    }
+
+    private static SearchHit hit(String id, String source, Map<String, SearchHitField> fields) {
+        SearchHit hit = new SearchHit(1, id, new Text("product"), fields);
+        hit.sourceRef(new BytesArray(source));
+        return hit;
+    }
+
+    @Test
+    public void mapsProductFromSource() {
+        Product product = HitMapper.of(Product.class).map(hit("1",
+                "{\"name\":\"Apache Hive\",\"tags\":[\"a\",{\"b\":1}],\"author\":\"刘德华\",\"extra\":{\"x\":1},\"version\":null}",
+                Collections.<String, SearchHitField>emptyMap()));
+        assertEquals(new Product("Apache Hive", "刘德华", null), product);
+    }
+
+    @Test
+    public void mapsAnnotatedFieldsAndDocValues() {
+        SearchHitField price = new SearchHitField("price", Collections.<Object>singletonList(1999L));
+        Sku sku = HitMapper.of(Sku.class).map(hit("sku-1",
+                "{\"sku_name\":\"kafka\",\"stock\":\"12\",\"onSale\":true,\"display\":\"ignored\"}",
+                Collections.singletonMap("price", price)));
+        assertEquals("sku-1", sku.id);
+        assertEquals("kafka", sku.name);
+        assertEquals(1999L, sku.price);
+        assertEquals(Integer.valueOf(12), sku.stock);
+        assertEquals(true, sku.onSale);
+        assertNull(sku.display);
+    }
+
+    @Test
+    public void preparesSourceFilterAndDocValueFields() {
+        SearchSourceBuilder source = HitMapper.of(Sku.class).prepare(new SearchSourceBuilder());
+        assertEquals(new HashSet<>(Arrays.asList("sku_name", "stock", "onSale")),
+                new HashSet<>(Arrays.asList(source.fetchSource().includes())));
+        assertEquals(Collections.singletonList("price"), source.docValueFields());
+    }
+
+    @Test
+    public void mappersAreCached() {
+        assertSame(HitMapper.of(Product.class), HitMapper.of(Product.class));
+    }
+}
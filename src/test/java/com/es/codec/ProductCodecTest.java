@@ -0,0 +1,40 @@
+package com.es.codec;
+
+import com.entry.Product;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProductCodecTest {
+
+    @Test
+    public void encodeSkipsNullFields() {
+        BytesReference bytes = ProductCodec.encode(new Product("Apache Hive"));
+        assertEquals("{\"name\":\"Apache Hive\"}", bytes.utf8ToString());
+    }
+
+    @Test
+    public void roundTrip() {
+        Product product = new Product("storm", "张学友", "3.45");
+        assertEquals(product, ProductCodec.decode(ProductCodec.encode(product)));
+    }
+
+    @Test
+    public void encodedBytesAreNotSharedBetweenCalls() {
+        BytesReference first = ProductCodec.encode(new Product("kafka", "LinkIn", "0.10.0.1"));
+        ProductCodec.encode(new Product("sqoop", "Apache", "1.4.7"));
+        assertEquals("kafka", ProductCodec.decode(first).getName());
+    }
+
+    @Test
+    public void decodeSkipsUnknownFields() {
+        Product product = ProductCodec.decode(new BytesArray(
+                "{\"name\":\"sqoop\",\"tags\":[\"a\",{\"b\":1}],\"meta\":{\"x\":1},\"author\":null,\"version\":\"1.4.7\"}"));
+        assertEquals("sqoop", product.getName());
+        assertNull(product.getAuthor());
+        assertEquals("1.4.7", product.getVersion());
+    }
+}
@@ -0,0 +1,122 @@
+package com.es.get;
+
+import com.es.StubClient;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.get.GetField;
+import org.elasticsearch.index.get.GetResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GetBatcherTest {
+
+    /**
+     * 记下listener, 由测试决定什么时候返回
+     */
+    private static final class HeldListeners implements StubClient.Handler {
+        final List<ActionListener<ActionResponse>> listeners = new ArrayList<>();
+
+        @Override
+        public synchronized void handle(ActionRequest request, ActionListener<ActionResponse> listener) {
+            listeners.add(listener);
+        }
+    }
+
+    @Test
+    public void sendsOneMultiGetPerBatchAndDeduplicatesIds() throws Exception {
+        HeldListeners held = new HeldListeners();
+        StubClient client = new StubClient(held);
+        try (GetBatcher batcher = new GetBatcher(client, TimeValue.timeValueHours(1), 3)) {
+            CompletableFuture<GetResponse> first = batcher.get("blog", "article", "1");
+            CompletableFuture<GetResponse> second = batcher.get("blog", "article", "2");
+            CompletableFuture<GetResponse> duplicate = batcher.get("blog", "article", "1");
+            assertTrue(client.requests().isEmpty());
+            CompletableFuture<GetResponse> third = batcher.get("blog", "article", "3");
+
+            assertEquals(1, client.requests().size());
+            MultiGetRequest request = (MultiGetRequest) client.requests().get(0);
+            assertEquals(3, request.getItems().size());
+
+            held.listeners.get(0).onResponse(new MultiGetResponse(new MultiGetItemResponse[]{
+                    item("1", true), item("2", false),
+                    new MultiGetItemResponse(null, new MultiGetResponse.Failure("blog", "article", "3",
+                            new IllegalStateException("shard failure")))}));
+            assertEquals("1", first.get(1, TimeUnit.SECONDS).getId());
+            assertTrue(first.get().isExists());
+            assertEquals("1", duplicate.get().getId());
+            assertFalse(second.get().isExists());
+            try {
+                third.get();
+                fail("item failure should fail the future");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    public void duplicateCallersGetIndependentFutures() throws Exception {
+        HeldListeners held = new HeldListeners();
+        StubClient client = new StubClient(held);
+        try (GetBatcher batcher = new GetBatcher(client, TimeValue.timeValueHours(1), 10)) {
+            CompletableFuture<GetResponse> first = batcher.get("blog", "article", "1");
+            CompletableFuture<GetResponse> second = batcher.get("blog", "article", "1");
+            assertNotSame(first, second);
+            first.cancel(false);
+            batcher.flush();
+            held.listeners.get(0).onResponse(new MultiGetResponse(new MultiGetItemResponse[]{item("1", true)}));
+            assertTrue(first.isCancelled());
+            assertEquals("1", second.get(1, TimeUnit.SECONDS).getId());
+        }
+    }
+
+    @Test
+    public void synchronousClientFailureCompletesEveryFuture() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("no node available");
+        StubClient client = new StubClient(new StubClient.Handler() {
+            @Override
+            public void handle(ActionRequest request, ActionListener<ActionResponse> listener) {
+                throw failure;
+            }
+        });
+        // 窗口很短, 在定时线程上flush
+        try (GetBatcher batcher = new GetBatcher(client, TimeValue.timeValueMillis(1), 10)) {
+            List<CompletableFuture<GetResponse>> futures = new ArrayList<>();
+            futures.add(batcher.get("blog", "article", "1"));
+            futures.add(batcher.get("blog", "article", "2"));
+            futures.add(batcher.get("blog", "article", "1"));
+            for (CompletableFuture<GetResponse> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    fail("client failure should fail the future");
+                } catch (ExecutionException e) {
+                    assertSame(failure, e.getCause());
+                }
+            }
+        }
+    }
+
+    private static MultiGetItemResponse item(String id, boolean exists) {
+        return new MultiGetItemResponse(new GetResponse(new GetResult("blog", "article", id, exists ? 1 : -1, exists,
+                null, Collections.<String, GetField>emptyMap())), null);
+    }
+}
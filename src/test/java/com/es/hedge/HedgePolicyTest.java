@@ -0,0 +1,69 @@
+package com.es.hedge;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgePolicyTest {
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    private static HedgePolicy policy(HedgeConfig.HedgeConfigBuilder builder) {
+        return new HedgePolicy(builder.window(TimeValue.timeValueSeconds(10)).build(), 0);
+    }
+
+    @Test
+    public void usesPercentileOfPreviousWindow() {
+        HedgePolicy policy = policy(HedgeConfig.builder().percentile(90).minSamples(100));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.delayNanos(0));
+        for (int i = 1; i <= 100; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        // 窗口没结束之前不变
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.delayNanos(WINDOW - 1));
+        assertEquals(90, TimeUnit.NANOSECONDS.toMillis(policy.delayNanos(WINDOW)));
+    }
+
+    @Test
+    public void carriesSamplesOverUntilEnough() {
+        HedgePolicy policy = policy(HedgeConfig.builder().percentile(50).minSamples(10));
+        for (int i = 0; i < 5; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        assertEquals(50, TimeUnit.NANOSECONDS.toMillis(policy.delayNanos(WINDOW)));
+        for (int i = 0; i < 5; i++) {
+            policy.record(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        assertEquals(200, TimeUnit.NANOSECONDS.toMillis(policy.delayNanos(2 * WINDOW)), 2);
+    }
+
+    @Test
+    public void clampsDelay() {
+        HedgePolicy policy = policy(HedgeConfig.builder().minSamples(1).maxDelay(TimeValue.timeValueMillis(100)));
+        policy.record(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), policy.delayNanos(WINDOW));
+    }
+
+    @Test
+    public void budgetLimitsHedgeRatio() {
+        HedgePolicy policy = policy(HedgeConfig.builder().maxHedgeRatio(0.1).maxBurst(2));
+        int hedges = 0;
+        for (int i = 0; i < 100; i++) {
+            policy.onRequest();
+            if (policy.tryAcquire()) {
+                hedges++;
+            }
+        }
+        assertEquals(10, hedges, 1);
+        for (int i = 0; i < 100; i++) {
+            policy.onRequest();
+        }
+        assertTrue(policy.tryAcquire());
+        assertTrue(policy.tryAcquire());
+        assertFalse(policy.tryAcquire());
+    }
+}
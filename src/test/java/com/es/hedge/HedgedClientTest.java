@@ -0,0 +1,93 @@
+package com.es.hedge;
+
+import com.es.StubClient;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.routing.Murmur3HashFunction;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedClientTest {
+
+    @Test
+    public void preferencePairSelectsDifferentCopies() {
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            String[] pair = HedgedClient.preferencePair(random);
+            int first = Murmur3HashFunction.hash(pair[0]);
+            int second = Murmur3HashFunction.hash(pair[1]);
+            for (int copies = 2; copies <= 3; copies++) {
+                // es按 floorMod(hash, 副本数) 旋转副本列表
+                assertNotEquals(Math.floorMod(first, copies), Math.floorMod(second, copies));
+            }
+        }
+    }
+
+    @Test
+    public void copiesSearchWithNewPreference() {
+        SearchSourceBuilder source = new SearchSourceBuilder().query(QueryBuilders.matchQuery("name", "storm"));
+        SearchRequest request = new SearchRequest(new String[]{"mytest"}, source)
+                .types("product")
+                .routing("r")
+                .searchType(SearchType.DFS_QUERY_THEN_FETCH)
+                .requestCache(true);
+        request.setMaxConcurrentShardRequests(3);
+        request.setPreFilterShardSize(16);
+        SearchRequest copy = HedgedClient.copySearch(request, "hedge_1");
+        assertArrayEquals(request.indices(), copy.indices());
+        assertArrayEquals(request.types(), copy.types());
+        assertSame(source, copy.source());
+        assertEquals("r", copy.routing());
+        assertEquals(SearchType.DFS_QUERY_THEN_FETCH, copy.searchType());
+        assertEquals(Boolean.TRUE, copy.requestCache());
+        assertEquals("hedge_1", copy.preference());
+        assertEquals(3, copy.getMaxConcurrentShardRequests());
+        assertEquals(16, copy.getPreFilterShardSize());
+    }
+
+    @Test
+    public void copiesGetWithNewPreference() {
+        GetRequest request = new GetRequest("mytest", "product", "1").routing("r").realtime(false).storedFields("name");
+        GetRequest copy = HedgedClient.copyGet(request, "hedge_1");
+        assertEquals("1", copy.id());
+        assertEquals("r", copy.routing());
+        assertFalse(copy.realtime());
+        assertArrayEquals(new String[]{"name"}, copy.storedFields());
+        assertEquals("hedge_1", copy.preference());
+    }
+
+    @Test
+    public void skipsRequestsWithPreferenceOrScroll() {
+        assertFalse(HedgedClient.hedgeable(new SearchRequest("mytest").preference("_local")));
+        assertFalse(HedgedClient.hedgeable(new SearchRequest("mytest").scroll(TimeValue.timeValueMinutes(1))));
+        assertFalse(HedgedClient.hedgeable(new GetRequest("mytest", "product", "1").refresh(true)));
+    }
+
+    @Test
+    public void closeStopsSchedulerButLeavesDelegateOpen() {
+        StubClient delegate = new StubClient(new StubClient.Handler() {
+            @Override
+            public void handle(ActionRequest request, ActionListener<ActionResponse> listener) {
+            }
+        });
+        HedgedClient hedged = new HedgedClient(delegate);
+        hedged.close();
+        assertTrue(hedged.isSchedulerShutdown());
+        assertFalse(delegate.isClosed());
+    }
+}
@@ -0,0 +1,118 @@
+package com.es.limit;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AdaptiveLimiterTest {
+
+    private static final class Recorder implements AdaptiveLimiter.Task {
+        final List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+
+        @Override
+        public void run(AdaptiveLimiter.Permit permit) {
+            permits.add(permit);
+        }
+    }
+
+    private static AdaptiveLimiter limiter(int initial, int maxQueue) {
+        return new AdaptiveLimiter("bulk", LimiterConfig.builder()
+                .initialLimit(initial)
+                .minLimit(1)
+                .maxLimit(100)
+                .backoffRatio(0.5)
+                .latencyTarget(TimeValue.timeValueHours(1))
+                .maxQueueSize(maxQueue)
+                .build());
+    }
+
+    @Test
+    public void queuesAboveLimitAndShedsWhenQueueIsFull() {
+        AdaptiveLimiter limiter = limiter(2, 1);
+        Recorder recorder = new Recorder();
+        limiter.submit(recorder);
+        limiter.submit(recorder);
+        limiter.submit(recorder);
+        assertEquals(2, recorder.permits.size());
+        assertEquals(1, limiter.getQueued());
+        try {
+            limiter.submit(recorder);
+            fail("queue is full");
+        } catch (EsRejectedExecutionException e) {
+            assertEquals(1, limiter.getShed());
+        }
+        limiter.release(recorder.permits.get(0), false);
+        assertEquals(3, recorder.permits.size());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void growsOnlyWhenSaturated() {
+        AdaptiveLimiter limiter = limiter(4, 10);
+        Recorder recorder = new Recorder();
+        limiter.submit(recorder);
+        limiter.release(recorder.permits.get(0), false);
+        assertEquals(4, limiter.getLimit());
+        for (int round = 0; round < 4; round++) {
+            int from = recorder.permits.size();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                limiter.submit(recorder);
+            }
+            for (int i = from; i < recorder.permits.size(); i++) {
+                limiter.release(recorder.permits.get(i), false);
+            }
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void decreasesOncePerOverloadedWindow() {
+        AdaptiveLimiter limiter = limiter(8, 10);
+        Recorder recorder = new Recorder();
+        for (int i = 0; i < 8; i++) {
+            limiter.submit(recorder);
+        }
+        // 同一批请求全部被拒绝, 只下调一次
+        for (int i = 0; i < 8; i++) {
+            limiter.release(recorder.permits.get(i), true);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.getDecreases());
+        // 下调之后发出的请求再被拒绝会继续下调
+        limiter.submit(recorder);
+        limiter.release(recorder.permits.get(8), true);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void drainsQueueWithoutRecursionWhenTasksReleaseInline() {
+        final AdaptiveLimiter limiter = limiter(1, 10000);
+        Recorder first = new Recorder();
+        limiter.submit(first);
+        final Set<Integer> depths = new HashSet<>();
+        AdaptiveLimiter.Task failing = new AdaptiveLimiter.Task() {
+            @Override
+            public void run(AdaptiveLimiter.Permit permit) {
+                // 和LimitedClient中请求同步失败一样, 在run里直接release
+                depths.add(new Throwable().getStackTrace().length);
+                limiter.release(permit, false);
+            }
+        };
+        for (int i = 0; i < 10000; i++) {
+            limiter.submit(failing);
+        }
+        limiter.release(first.permits.get(0), false);
+        assertEquals(0, limiter.getQueued());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, depths.size());
+    }
+}
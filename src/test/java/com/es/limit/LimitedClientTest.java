@@ -0,0 +1,35 @@
+package com.es.limit;
+
+import com.es.StubClient;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LimitedClientTest {
+
+    @Test
+    public void closeLeavesDelegateOpen() {
+        final List<ActionListener<ActionResponse>> pending = new ArrayList<>();
+        StubClient delegate = new StubClient(new StubClient.Handler() {
+            @Override
+            public void handle(ActionRequest request, ActionListener<ActionResponse> listener) {
+                pending.add(listener);
+            }
+        });
+        LimitedClient limited = new LimitedClient(delegate);
+        limited.get(new GetRequest("mytest", "product", "1"));
+        assertEquals(1, limited.limiter("get").getInFlight());
+        limited.close();
+        assertFalse(delegate.isClosed());
+        delegate.get(new GetRequest("mytest", "product", "2"));
+        assertEquals(2, delegate.requests().size());
+    }
+}
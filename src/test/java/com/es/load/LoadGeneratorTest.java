@@ -0,0 +1,79 @@
+package com.es.load;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void stallIsChargedToQueuedRequests() throws Exception {
+        final AtomicBoolean stalled = new AtomicBoolean();
+        LoadOperation operation = new LoadOperation() {
+            @Override
+            public String name() {
+                return "stall";
+            }
+
+            @Override
+            public void execute(Client client, Random random) throws Exception {
+                if (stalled.compareAndSet(false, true)) {
+                    Thread.sleep(500);
+                }
+            }
+        };
+        LoadConfig config = LoadConfig.builder()
+                .targetRate(100)
+                .duration(TimeValue.timeValueSeconds(2))
+                .warmup(TimeValue.timeValueMillis(0))
+                .threads(1)
+                .build();
+        LoadReport report = new LoadGenerator(null, config).run(new OperationMix().add(operation, 1));
+        LoadReport.Stats stats = report.getOperations().get(0);
+
+        assertEquals(200, stats.getCount());
+        assertEquals(0, stats.getErrors());
+        // 卡住的500ms里本该发出约50个请求, 它们的延迟都要算上排队时间
+        assertTrue(stats.getLatencyAtPercentile(90) >= 100_000);
+        assertTrue(stats.getServiceTimeAtPercentile(90) < 100_000);
+        assertTrue(stats.getMaxLatency() >= 500_000);
+
+        StringWriter csv = new StringWriter();
+        report.toCsv(csv);
+        assertTrue(csv.toString().startsWith("operation,count,errors"));
+        assertTrue(csv.toString().contains("\nstall,200,0,"));
+        assertTrue(report.toJson().contains("\"service_time\""));
+    }
+
+    @Test
+    public void countsFailures() throws Exception {
+        LoadOperation operation = new LoadOperation() {
+            @Override
+            public String name() {
+                return "fail";
+            }
+
+            @Override
+            public void execute(Client client, Random random) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        LoadConfig config = LoadConfig.builder()
+                .targetRate(200)
+                .duration(TimeValue.timeValueMillis(500))
+                .warmup(TimeValue.timeValueMillis(100))
+                .threads(2)
+                .build();
+        LoadReport.Stats stats = new LoadGenerator(null, config).run(new OperationMix().add(operation, 1))
+                .getOperations().get(0);
+        assertEquals(100, stats.getCount());
+        assertEquals(100, stats.getErrors());
+    }
+}
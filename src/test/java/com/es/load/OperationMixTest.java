@@ -0,0 +1,58 @@
+package com.es.load;
+
+import org.elasticsearch.client.Client;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OperationMixTest {
+
+    private static LoadOperation named(final String name) {
+        return new LoadOperation() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void execute(Client client, Random random) {
+            }
+        };
+    }
+
+    @Test
+    public void picksByWeight() {
+        OperationMix mix = new OperationMix().add(named("a"), 1).add(named("b"), 3);
+        Map<String, Integer> counts = new HashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 40000; i++) {
+            String name = mix.pick(random).name();
+            counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+        }
+        assertEquals(10000, counts.get("a"), 500);
+        assertEquals(30000, counts.get("b"), 500);
+        assertEquals(3, mix.weightOf(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveWeight() {
+        new OperationMix().add(named("a"), 0);
+    }
+
+    @Test
+    public void parsesMixSpec() {
+        OperationMix mix = new Workloads("index", "type", 10).mix("get:2, bulk:1");
+        assertEquals("get", mix.operations().get(0).name());
+        assertEquals("bulk", mix.operations().get(1).name());
+        assertEquals(2, mix.weightOf(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOperation() {
+        new Workloads("index", "type", 10).mix("scan:1");
+    }
+}
@@ -0,0 +1,75 @@
+package com.es.metrics;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.get.GetAction;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.index.IndexAction;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class InstrumentedClientTest {
+
+    @Test
+    public void operationNames() {
+        assertEquals("index", InstrumentedClient.operation(IndexAction.INSTANCE, new IndexRequest("mytest")));
+        assertEquals("get", InstrumentedClient.operation(GetAction.INSTANCE, new GetRequest("mytest")));
+        assertEquals("search", InstrumentedClient.operation(SearchAction.INSTANCE, new SearchRequest("bank")));
+        SearchRequest aggregation = new SearchRequest("bank")
+                .source(new SearchSourceBuilder().aggregation(AggregationBuilders.avg("avgSalary").field("balance")));
+        assertEquals("aggregation", InstrumentedClient.operation(SearchAction.INSTANCE, aggregation));
+    }
+
+    @Test
+    public void indexOfCompositeRequests() {
+        BulkRequest bulk = new BulkRequest()
+                .add(new IndexRequest("mytest", "product").source("{}", XContentType.JSON))
+                .add(new UpdateRequest("blog", "article", "1").doc("{}", XContentType.JSON))
+                .add(new IndexRequest("mytest", "product").source("{}", XContentType.JSON));
+        assertEquals("blog,mytest", InstrumentedClient.index(bulk));
+        assertEquals("blog", InstrumentedClient.index(new MultiGetRequest().add("blog", "article", "1")));
+        assertEquals("_all", InstrumentedClient.index(new SearchRequest()));
+    }
+
+    @Test
+    public void requestBytesCountsSource() {
+        IndexRequest index = new IndexRequest("mytest", "product").source("{\"name\":\"storm\"}", XContentType.JSON);
+        assertEquals(16, InstrumentedClient.requestBytes(index));
+        assertEquals(0, InstrumentedClient.requestBytes(new GetRequest("mytest")));
+    }
+
+    @Test
+    public void rollIntervalResetsPercentiles() {
+        ClientMetrics metrics = new ClientMetrics(TimeValue.timeValueHours(1), false);
+        try {
+            OperationMetrics operation = metrics.get("get", "mytest");
+            for (int i = 1; i <= 100; i++) {
+                operation.begin(0);
+                operation.end(TimeUnit.MILLISECONDS.toNanos(i), 10, 0, i == 100);
+            }
+            metrics.report();
+            assertEquals(100, operation.getIntervalCount());
+            assertEquals(1, operation.getFailures());
+            assertEquals(0, operation.getInFlight());
+            assertEquals(1000, operation.getResponseBytes());
+            assertEquals(100, operation.getMaxMicros() / 1000);
+
+            metrics.report();
+            assertEquals(0, operation.getIntervalCount());
+            assertEquals(100, operation.getCount());
+        } finally {
+            metrics.close();
+        }
+    }
+}
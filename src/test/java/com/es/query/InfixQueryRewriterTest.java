@@ -0,0 +1,102 @@
+package com.es.query;
+
+import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchPhraseQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InfixQueryRewriterTest {
+    private static final Set<String> READY = Collections.singleton("content");
+    private final InfixQueryRewriter rewriter = new InfixQueryRewriter(null, NgramFields.builder().field("content").build());
+
+    @Test
+    public void longInfixBecomesPhraseOnNgramSubfield() {
+        QueryBuilder query = rewriter.rewrite(QueryBuilders.wildcardQuery("content", "*全文检索*").boost(2), READY);
+        assertTrue(query instanceof MatchPhraseQueryBuilder);
+        MatchPhraseQueryBuilder phrase = (MatchPhraseQueryBuilder) query;
+        assertEquals("content.ngram", phrase.fieldName());
+        assertEquals("全文检索", phrase.value());
+        assertEquals(2f, phrase.boost(), 0f);
+    }
+
+    @Test
+    public void shortInfixBecomesTermOnShortSubfield() {
+        QueryBuilder query = rewriter.rewrite(QueryBuilders.wildcardQuery("content", "*全*"), READY);
+        assertTrue(query instanceof TermQueryBuilder);
+        assertEquals("content.ngram_short", ((TermQueryBuilder) query).fieldName());
+        assertEquals("全", ((TermQueryBuilder) query).value());
+    }
+
+    @Test
+    public void keepsWildcardWhenNgramCannotExpressIt() {
+        WildcardQueryBuilder prefix = QueryBuilders.wildcardQuery("content", "全*");
+        WildcardQueryBuilder inner = QueryBuilders.wildcardQuery("content", "*全?文*");
+        WildcardQueryBuilder spaced = QueryBuilders.wildcardQuery("content", "*全 文*");
+        WildcardQueryBuilder otherField = QueryBuilders.wildcardQuery("title", "*全文*");
+        assertSame(prefix, rewriter.rewrite(prefix, READY));
+        assertSame(inner, rewriter.rewrite(inner, READY));
+        assertSame(spaced, rewriter.rewrite(spaced, READY));
+        assertSame(otherField, rewriter.rewrite(otherField, READY));
+    }
+
+    @Test
+    public void rewritesBoolClauses() {
+        BoolQueryBuilder bool = QueryBuilders.boolQuery()
+                .must(QueryBuilders.wildcardQuery("content", "*es*"))
+                .filter(QueryBuilders.termQuery("id", 1));
+        rewriter.rewrite(bool, READY);
+        assertTrue(bool.must().get(0) instanceof MatchPhraseQueryBuilder);
+        assertTrue(bool.filter().get(0) instanceof TermQueryBuilder);
+    }
+
+    @Test
+    public void keepsWildcardWhenSubfieldsAreNotMapped() {
+        WildcardQueryBuilder wildcard = QueryBuilders.wildcardQuery("content", "*全*");
+        assertSame(wildcard, rewriter.rewrite(wildcard, Collections.<String>emptySet()));
+    }
+
+    @Test
+    public void fieldIsReadyOnlyWhenEveryIndexHasBothSubfields() {
+        Map<String, Map<String, Map<String, FieldMappingMetaData>>> mappings = new HashMap<>();
+        mappings.put("blog4", types(mapping("content.ngram"), mapping("content.ngram_short")));
+        assertEquals(READY, rewriter.readyFields(mappings));
+
+        mappings.put("blog", types(mapping("content.ngram")));
+        assertTrue(rewriter.readyFields(mappings).isEmpty());
+        assertTrue(rewriter.readyFields(new HashMap<String, Map<String, Map<String, FieldMappingMetaData>>>()).isEmpty());
+    }
+
+    private static FieldMappingMetaData mapping(String field) {
+        return new FieldMappingMetaData(field, new BytesArray("{}"));
+    }
+
+    private static Map<String, Map<String, FieldMappingMetaData>> types(FieldMappingMetaData... fields) {
+        Map<String, FieldMappingMetaData> article = new HashMap<>();
+        for (FieldMappingMetaData field : fields) {
+            article.put(field.fullName(), field);
+        }
+        return Collections.singletonMap("article", article);
+    }
+
+    @Test
+    public void infixOfRejectsEmptyAndEscapes() {
+        assertNull(InfixQueryRewriter.infixOf("**"));
+        assertNull(InfixQueryRewriter.infixOf("*a\\*b*"));
+        assertEquals("ab", InfixQueryRewriter.infixOf("*ab*"));
+    }
+}
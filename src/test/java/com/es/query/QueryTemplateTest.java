@@ -0,0 +1,93 @@
+package com.es.query;
+
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryTemplateTest {
+
+    private static String json(QueryBuilder query) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        query.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return builder.string();
+    }
+
+    private static String render(QueryTemplate template, String name, Object value) {
+        return template.render(Collections.singletonMap(name, value)).utf8ToString();
+    }
+
+    @Test
+    public void rendersSameJsonAsBuilder() throws IOException {
+        QueryTemplate template = QueryTemplate.compile(QueryBuilders.matchQuery("name", QueryTemplate.param("q")));
+        assertEquals(json(QueryBuilders.matchQuery("name", "storm")), render(template, "q", "storm"));
+        assertEquals(json(QueryBuilders.matchQuery("name", "say \"hi\"\n\\全文")), render(template, "q", "say \"hi\"\n\\全文"));
+    }
+
+    @Test
+    public void wholeValueSlotAcceptsScalars() throws IOException {
+        QueryTemplate template = QueryTemplate.compile(QueryBuilders.termQuery("version", QueryTemplate.param("v")));
+        assertEquals(json(QueryBuilders.termQuery("version", 3)), render(template, "v", 3));
+        assertEquals(json(QueryBuilders.termQuery("version", true)), render(template, "v", true));
+    }
+
+    @Test
+    public void splicesInsideStrings() throws IOException {
+        QueryTemplate template = QueryTemplate.compile(
+                QueryBuilders.wildcardQuery("content", "*" + QueryTemplate.param("q") + "*"));
+        assertEquals(json(QueryBuilders.wildcardQuery("content", "*全\"文*")), render(template, "q", "全\"文"));
+        assertEquals(json(QueryBuilders.wildcardQuery("content", "*7*")), render(template, "q", 7));
+    }
+
+    @Test
+    public void bindsRepeatedAndMultipleParameters() throws IOException {
+        QueryTemplate template = QueryTemplate.compile(QueryBuilders.boolQuery()
+                .should(QueryBuilders.matchQuery("name", QueryTemplate.param("q")))
+                .should(QueryBuilders.matchQuery("author", QueryTemplate.param("q")))
+                .filter(QueryBuilders.termQuery("version.keyword", QueryTemplate.param("version"))));
+        assertEquals(new HashSet<>(Arrays.asList("q", "version")), template.getParameterNames());
+        Map<String, Object> params = new HashMap<>();
+        params.put("q", "storm");
+        params.put("version", "v1");
+        assertEquals(json(QueryBuilders.boolQuery()
+                        .should(QueryBuilders.matchQuery("name", "storm"))
+                        .should(QueryBuilders.matchQuery("author", "storm"))
+                        .filter(QueryBuilders.termQuery("version.keyword", "v1"))),
+                template.render(params).utf8ToString());
+    }
+
+    @Test
+    public void escapedMarkerTextIsNotAParameter() throws IOException {
+        QueryTemplate template = QueryTemplate.compile(QueryBuilders.boolQuery()
+                .must(QueryBuilders.termQuery("raw", "\\u0001x\\u0001"))
+                .must(QueryBuilders.termQuery("name", QueryTemplate.param("q"))));
+        assertEquals(Collections.singleton("q"), template.getParameterNames());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingParameter() {
+        QueryTemplate.compile(QueryBuilders.matchQuery("name", QueryTemplate.param("q")))
+                .bind(Collections.<String, Object>emptyMap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownParameter() {
+        QueryTemplate.compile(QueryBuilders.matchQuery("name", QueryTemplate.param("q"))).bind("query", "storm");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTemplateWithoutParameters() {
+        QueryTemplate.compile(QueryBuilders.matchAllQuery());
+    }
+}
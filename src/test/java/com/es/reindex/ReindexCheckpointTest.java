@@ -0,0 +1,49 @@
+package com.es.reindex;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReindexCheckpointTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrips() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("blog.checkpoint");
+        ReindexCheckpoint checkpoint = ReindexCheckpoint.load(file, "blog", "blog2", 3);
+        checkpoint.advance(0, "article#17");
+        checkpoint.markDone(2);
+        checkpoint.save(file);
+
+        ReindexCheckpoint loaded = ReindexCheckpoint.load(file, "blog", "blog2", 3);
+        assertEquals("article#17", loaded.uid(0));
+        assertNull(loaded.uid(1));
+        assertFalse(loaded.isDone(0));
+        assertTrue(loaded.isDone(2));
+        assertEquals(Collections.singleton(2), loaded.doneSlices());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDifferentJob() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("blog.checkpoint");
+        new ReindexCheckpoint("blog", "blog2", 3).save(file);
+        ReindexCheckpoint.load(file, "blog", "blog2", 4);
+    }
+
+    @Test
+    public void comparesUidsInLuceneOrder() {
+        assertTrue(Reindexer.compareUid("article#10", "article#9") < 0);
+        // UTF-8字节顺序, 和String.compareTo在代理对上不同
+        assertTrue(Reindexer.compareUid("a#｡", "a#😀") < 0);
+        assertTrue("a#｡".compareTo("a#😀") > 0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.es.reindex;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThrottleTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void spacesPermitsByRate() {
+        Throttle throttle = new Throttle(100);
+        assertEquals(0, throttle.reserve(50, 0));
+        // 前面预约了半秒
+        assertEquals(SECOND / 2, throttle.reserve(1, 0));
+        assertEquals(SECOND / 2 + SECOND / 100 - SECOND / 4, throttle.reserve(1, SECOND / 4));
+    }
+
+    @Test
+    public void idleTimeDoesNotAccumulate() {
+        Throttle throttle = new Throttle(10);
+        throttle.reserve(1, 0);
+        assertEquals(0, throttle.reserve(10, 10 * SECOND));
+        assertEquals(SECOND, throttle.reserve(1, 10 * SECOND));
+    }
+
+    @Test
+    public void zeroRateIsUnlimited() {
+        Throttle throttle = new Throttle(0);
+        assertEquals(0, throttle.reserve(1_000_000, 0));
+        throttle.setRate(1);
+        assertEquals(0, throttle.reserve(2, 0));
+        assertEquals(2 * SECOND, throttle.reserve(1, 0));
+    }
+}
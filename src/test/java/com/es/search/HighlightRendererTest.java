@@ -0,0 +1,52 @@
+package com.es.search;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class HighlightRendererTest {
+
+    private static SearchHit hit(String source, HighlightField... fields) {
+        SearchHit hit = new SearchHit(1, "1", new Text("product"), Collections.<String, SearchHitField>emptyMap());
+        hit.sourceRef(new BytesArray(source));
+        Map<String, HighlightField> highlights = new LinkedHashMap<>();
+        for (HighlightField field : fields) {
+            highlights.put(field.getName(), field);
+        }
+        hit.highlightFields(highlights);
+        return hit;
+    }
+
+    private static HighlightField highlight(String name, String... fragments) {
+        Text[] texts = new Text[fragments.length];
+        for (int i = 0; i < fragments.length; i++) {
+            texts[i] = new Text(fragments[i]);
+        }
+        return new HighlightField(name, texts);
+    }
+
+    @Test
+    public void replacesHighlightedFieldInPlace() throws Exception {
+        SearchHit hit = hit("{\"name\":\"Apache Hive\",\"author\":\"刘德华\",\"version\":\"2.5.1\"}",
+                highlight("name", "Apache <font color='red' size='20'>Hive</font>"));
+        assertEquals("{\"name\":\"Apache <font color='red' size='20'>Hive</font>\",\"author\":\"刘德华\",\"version\":\"2.5.1\"}",
+                HighlightRenderer.renderToString(hit));
+    }
+
+    @Test
+    public void copiesNestedValuesAndAppendsMissingHighlights() throws Exception {
+        SearchHit hit = hit("{\"tags\":[\"a\",{\"b\":1}],\"meta\":{\"x\":null},\"content\":{\"ignored\":true}}",
+                highlight("content", "<em>全</em>文", "搜索"), highlight("title", "<em>Lucene</em>"));
+        assertEquals("{\"tags\":[\"a\",{\"b\":1}],\"meta\":{\"x\":null},\"content\":\"<em>全</em>文...搜索\",\"title\":\"<em>Lucene</em>\"}",
+                HighlightRenderer.renderToString(hit));
+    }
+}
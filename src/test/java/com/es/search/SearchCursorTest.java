@@ -0,0 +1,120 @@
+package com.es.search;
+
+import com.es.StubClient;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class SearchCursorTest {
+
+    @Test
+    public void roundTripsSortValues() {
+        Object[] values = {1.5f, 42L, "product#7", new Text("storm"), true, null};
+        String cursor = SearchCursor.encode(17, values);
+        assertArrayEquals(values, SearchCursor.decode(17, values.length, cursor));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCursorOfAnotherQuery() {
+        String cursor = SearchCursor.encode(17, new Object[]{42L});
+        SearchCursor.decode(18, 1, cursor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGarbage() {
+        SearchCursor.decode(17, 1, "not-a-cursor");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMoreValuesThanSorts() {
+        String cursor = SearchCursor.encode(17, new Object[]{1L, 2L, 3L});
+        SearchCursor.decode(17, 2, cursor);
+    }
+
+    @Test
+    public void rejectsCraftedLengthsBeforeAllocating() throws IOException {
+        assertInvalid(crafted(Integer.MAX_VALUE, (byte) 1, 0));
+        // 字符串声明了2GB长度, 实际只有几个字节
+        assertInvalid(crafted(1, (byte) 1, Integer.MAX_VALUE));
+        // readGenericValue能读出的数组、map等类型都不接受
+        assertInvalid(crafted(1, (byte) 100, 0));
+    }
+
+    @Test
+    public void fingerprintDependsOnQueryAndSort() {
+        SearchRequest asc = request("mytest", "storm", SortOrder.ASC);
+        assertEquals(CursorPager.fingerprint(asc), CursorPager.fingerprint(request("mytest", "storm", SortOrder.ASC)));
+        assertNotEquals(CursorPager.fingerprint(asc), CursorPager.fingerprint(request("mytest", "storm", SortOrder.DESC)));
+        assertNotEquals(CursorPager.fingerprint(asc), CursorPager.fingerprint(request("mytest", "kafka", SortOrder.ASC)));
+        assertNotEquals(CursorPager.fingerprint(asc), CursorPager.fingerprint(request("blog", "storm", SortOrder.ASC)));
+    }
+
+    @Test
+    public void pageLeavesCallerRequestUntouched() {
+        StubClient client = new StubClient(new StubClient.Handler() {
+            @Override
+            public void handle(ActionRequest request, ActionListener<ActionResponse> listener) {
+                listener.onResponse(new SearchResponse(InternalSearchResponse.empty(), null, 1, 1, 0, 1,
+                        ShardSearchFailure.EMPTY_ARRAY));
+            }
+        });
+        SearchRequestBuilder builder = client.prepareSearch("mytest").setQuery(QueryBuilders.matchQuery("name", "storm"));
+        CursorPager pager = new CursorPager(client);
+        pager.page(builder, 10, null);
+        SearchRequest sent = (SearchRequest) client.requests().get(0);
+        String cursor = SearchCursor.encode(CursorPager.fingerprint(sent), new Object[]{1.5f, "product#7"});
+        pager.page(builder, 10, cursor);
+
+        assertNull(builder.request().source().sorts());
+        assertNull(builder.request().source().searchAfter());
+        assertEquals(2, ((SearchRequest) client.requests().get(1)).source().sorts().size());
+        assertArrayEquals(new Object[]{1.5f, "product#7"}, ((SearchRequest) client.requests().get(1)).source().searchAfter());
+    }
+
+    private static SearchRequest request(String index, String name, SortOrder order) {
+        return new SearchRequest(index).source(new SearchSourceBuilder()
+                .query(QueryBuilders.matchQuery("name", name))
+                .sort("price", order));
+    }
+
+    private static String crafted(int count, byte type, int length) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeVInt(2);
+            out.writeInt(17);
+            out.writeVInt(count);
+            out.writeByte(type);
+            out.writeVInt(length);
+            return Base64.getUrlEncoder().encodeToString(BytesReference.toBytes(out.bytes()));
+        }
+    }
+
+    private static void assertInvalid(String cursor) {
+        try {
+            SearchCursor.decode(17, 2, cursor);
+            fail("cursor should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
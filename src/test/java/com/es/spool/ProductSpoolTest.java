@@ -0,0 +1,130 @@
+package com.es.spool;
+
+import com.entry.Product;
+import com.es.StubClient;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProductSpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 模拟集群: 前unavailable次请求报没有可用节点, 包含id为poison的bulk整个被拒绝(400), 其他请求全部成功
+     */
+    private static final class ScriptedCluster implements StubClient.Handler {
+        final AtomicInteger unavailable;
+        final List<String> indexed = Collections.synchronizedList(new ArrayList<String>());
+
+        ScriptedCluster(int unavailable) {
+            this.unavailable = new AtomicInteger(unavailable);
+        }
+
+        @Override
+        public void handle(ActionRequest request, ActionListener<ActionResponse> listener) {
+            if (unavailable.getAndDecrement() > 0) {
+                listener.onFailure(new NoNodeAvailableException("none of the configured nodes are available"));
+                return;
+            }
+            List<DocWriteRequest> requests = ((BulkRequest) request).requests();
+            for (DocWriteRequest item : requests) {
+                if ("poison".equals(item.id())) {
+                    listener.onFailure(new IllegalArgumentException("failed to parse [poison]"));
+                    return;
+                }
+            }
+            BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+            for (int i = 0; i < items.length; i++) {
+                DocWriteRequest item = requests.get(i);
+                indexed.add(item.id());
+                items[i] = new BulkItemResponse(i, item.opType(),
+                        new IndexResponse(new ShardId(item.index(), "_na_", 0), item.type(), item.id(), 1, true));
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        }
+    }
+
+    private SpoolConfig config() {
+        return SpoolConfig.builder()
+                .directory(folder.getRoot().toPath())
+                .segmentSize(new ByteSizeValue(1, ByteSizeUnit.MB))
+                .maxSegments(4)
+                .syncInterval(TimeValue.timeValueMillis(20))
+                .retryInitialDelay(TimeValue.timeValueMillis(10))
+                .build();
+    }
+
+    @Test
+    public void retriesOnlyTransientFailures() {
+        assertTrue(ProductSpool.retryable(RestStatus.TOO_MANY_REQUESTS));
+        assertTrue(ProductSpool.retryable(RestStatus.SERVICE_UNAVAILABLE));
+        assertTrue(ProductSpool.retryable(RestStatus.GATEWAY_TIMEOUT));
+        assertFalse(ProductSpool.retryable(RestStatus.BAD_REQUEST));
+        assertFalse(ProductSpool.retryable(RestStatus.CONFLICT));
+        assertFalse(ProductSpool.retryable(RestStatus.NOT_FOUND));
+    }
+
+    @Test
+    public void skipsPoisonRecordsInsteadOfStalling() throws Exception {
+        SpoolConfig config = config();
+        // 无法解析的记录: 未知的操作类型
+        try (SpoolLog log = new SpoolLog(config.getDirectory(), (int) config.getSegmentSize().getBytes(), config.getMaxSegments())) {
+            log.append(ProductSpool.encode((byte) 7, "mytest", "product", "unknown-op", new BytesArray("{}")));
+        }
+        ScriptedCluster cluster = new ScriptedCluster(0);
+        StubClient client = new StubClient(cluster);
+        try (ProductSpool spool = new ProductSpool(client, config)) {
+            char[] longId = new char[600];
+            Arrays.fill(longId, 'x');
+            spool.index("mytest", "product", "1", new Product("storm"));
+            // 客户端校验不通过: id超过512字节
+            spool.index("mytest", "product", new String(longId), new Product("storm"));
+            // 整个bulk被集群拒绝
+            spool.index("mytest", "product", "poison", new Product("storm"));
+            spool.index("mytest", "product", "2", new Product("storm"));
+            assertTrue(spool.awaitDrained(TimeValue.timeValueSeconds(10)));
+            assertEquals(3, spool.getFailed());
+            assertEquals(0, spool.getRetries());
+        }
+        assertEquals(Arrays.asList("1", "2"), cluster.indexed);
+    }
+
+    @Test
+    public void backsOffWhileClusterIsUnavailable() throws Exception {
+        ScriptedCluster cluster = new ScriptedCluster(3);
+        try (ProductSpool spool = new ProductSpool(new StubClient(cluster), config())) {
+            spool.index("mytest", "product", "1", new Product("storm"));
+            assertTrue(spool.awaitDrained(TimeValue.timeValueSeconds(10)));
+            assertEquals(0, spool.getFailed());
+            assertEquals(3, spool.getRetries());
+        }
+        assertEquals(Collections.singletonList("1"), cluster.indexed);
+    }
+}
@@ -0,0 +1,94 @@
+package com.es.spool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpoolLogTest {
+    private static final int SEGMENT_SIZE = 64;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readAll(SpoolLog log, long from) {
+        List<String> values = new ArrayList<>();
+        for (byte[] record : log.read(from, Integer.MAX_VALUE, new ArrayList<Long>())) {
+            values.add(new String(record, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    @Test
+    public void rollsSegmentsAndReadsAcrossThem() throws IOException {
+        try (SpoolLog log = new SpoolLog(folder.getRoot().toPath(), SEGMENT_SIZE, 8)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(record("record-" + i));
+            }
+            assertEquals(4, log.segmentCount());
+            assertEquals(10, readAll(log, 0).size());
+            assertEquals("record-9", readAll(log, 0).get(9));
+        }
+    }
+
+    @Test
+    public void resumesFromAckAfterReopen() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (SpoolLog log = new SpoolLog(dir, SEGMENT_SIZE, 8)) {
+            for (int i = 0; i < 10; i++) {
+                log.append(record("record-" + i));
+            }
+            List<Long> offsets = new ArrayList<>();
+            log.read(0, 6, offsets);
+            log.ack(offsets.get(offsets.size() - 1));
+            assertEquals(3, log.segmentCount());
+        }
+        try (SpoolLog log = new SpoolLog(dir, SEGMENT_SIZE, 8)) {
+            assertEquals("record-6", readAll(log, log.ackOffset()).get(0));
+            assertEquals(4, readAll(log, log.ackOffset()).size());
+            log.append(record("record-10"));
+            assertEquals("record-10", readAll(log, log.ackOffset()).get(4));
+        }
+    }
+
+    @Test
+    public void dropsTornRecordOnRecovery() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        long torn;
+        try (SpoolLog log = new SpoolLog(dir, SEGMENT_SIZE, 8)) {
+            log.append(record("ok"));
+            torn = log.append(record("torn"));
+        }
+        // 模拟写了一半: 长度已经写入, 内容被破坏
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve(String.format("%020d.seg", 0)).toFile(), "rw")) {
+            file.seek(torn + SpoolLog.HEADER_SIZE);
+            file.write('X');
+        }
+        try (SpoolLog log = new SpoolLog(dir, SEGMENT_SIZE, 8)) {
+            assertEquals(torn, log.writeOffset());
+            assertEquals(1, readAll(log, 0).size());
+        }
+    }
+
+    @Test
+    public void refusesToGrowBeyondMaxSegments() throws IOException {
+        try (SpoolLog log = new SpoolLog(folder.getRoot().toPath(), SEGMENT_SIZE, 1)) {
+            assertEquals(0, log.append(record("record-0")));
+            log.append(record("record-1"));
+            log.append(record("record-2"));
+            assertEquals(-1, log.append(record("record-3")));
+        }
+    }
+}